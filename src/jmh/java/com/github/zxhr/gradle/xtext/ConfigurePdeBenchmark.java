@@ -0,0 +1,107 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ConfigurePde} reading the {@code MANIFEST.MF} and
+ * {@code plugin.xml} from Jars of various sizes, and from the files directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConfigurePdeBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int jarEntries;
+
+    private Path projectDir;
+    private ConfigurePde fromJar;
+    private ConfigurePde fromFiles;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        projectDir = BenchmarkFiles.createTempDirectory("pde");
+        Project project = ProjectBuilder.builder().withProjectDir(projectDir.toFile()).build();
+        Path jar = projectDir.resolve("build/libs/bundle.jar");
+        Path manifest = projectDir.resolve("build/src-gen/main/resources/META-INF/MANIFEST.MF");
+        Path pluginXml = projectDir.resolve("build/src-gen/main/resources/plugin.xml");
+        byte[] manifestContent = "Manifest-Version: 1.0\r\nBundle-SymbolicName: org.example.mydsl\r\n\r\n"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] pluginXmlContent = "<?xml version=\"1.0\"?>\n<plugin/>\n".getBytes(StandardCharsets.UTF_8);
+        writeJar(jar, manifestContent, pluginXmlContent);
+        Files.createDirectories(manifest.getParent());
+        Files.write(manifest, manifestContent);
+        Files.write(pluginXml, pluginXmlContent);
+        fromJar = project.getTasks().create("configurePdeFromJar", ConfigurePde.class, task -> {
+            task.getPdeDirectory().set(projectDir.resolve("build/pde-jar").toFile());
+            task.getPdeSettingFile().set(projectDir.resolve(".settings/jar.prefs").toFile());
+            task.getJar().set(jar.toFile());
+        });
+        fromFiles = project.getTasks().create("configurePdeFromFiles", ConfigurePde.class, task -> {
+            task.getPdeDirectory().set(projectDir.resolve("build/pde-files").toFile());
+            task.getPdeSettingFile().set(projectDir.resolve(".settings/files.prefs").toFile());
+            task.getManifest().set(manifest.toFile());
+            task.getPluginXml().set(pluginXml.toFile());
+        });
+    }
+
+    private void writeJar(Path jar, byte[] manifest, byte[] pluginXml) throws IOException {
+        Files.createDirectories(jar.getParent());
+        Random random = new Random(jarEntries);
+        byte[] classContent = new byte[2048];
+        try (OutputStream out = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write(manifest);
+            for (int i = 0; i < jarEntries; i++) {
+                random.nextBytes(classContent);
+                zip.putNextEntry(new ZipEntry("org/example/p" + (i / 100) + "/C" + i + ".class"));
+                zip.write(classContent);
+            }
+            zip.putNextEntry(new ZipEntry("plugin.xml"));
+            zip.write(pluginXml);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(projectDir);
+    }
+
+    @Benchmark
+    public void configurePdeFromJar() throws IOException {
+        fromJar.configurePde();
+    }
+
+    @Benchmark
+    public void configurePdeFromFiles() throws IOException {
+        fromFiles.configurePde();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.xtext.xtext.generator.StandardLanguage;
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finalizing the {@link XtextGenerator} of a root project with
+ * runtime, generic IDE and web sub-projects, collecting the generator
+ * properties the {@code generateMwe2} task tracks, and taking the snapshot the
+ * configuration cache and the workers receive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class FinalizeGeneratorBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int languages;
+
+    private Path projectDir;
+    private XtextRootProjectExtension extension;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        projectDir = BenchmarkFiles.createTempDirectory("finalize");
+        Project root = ProjectBuilder.builder().withName("root").withProjectDir(projectDir.toFile()).build();
+        Project runtime = createSubProject(root, "example.mydsl");
+        Project genericIde = createSubProject(root, "example.mydsl.ide");
+        Project web = createSubProject(root, "example.mydsl.web");
+        root.getPluginManager().apply(XtextRootProjectPlugin.class);
+        runtime.getPluginManager().apply(XtextRuntimePlugin.class);
+        genericIde.getPluginManager().apply(XtextGenericIdePlugin.class);
+        web.getPluginManager().apply(XtextWebPlugin.class);
+        extension = root.getExtensions().getByType(XtextRootProjectExtension.class);
+        for (int i = 0; i < languages; i++) {
+            String fileExtension = "mydsl" + i;
+            File grammar = projectDir.resolve("example.mydsl/src/main/java/org/example/MyDsl" + i + ".xtext").toFile();
+            extension.language("org.example.MyDsl" + i, StandardLanguage.class, language -> {
+                language.setGrammarUri(grammar.toURI().toString());
+                language.setFileExtensions(fileExtension);
+            });
+        }
+    }
+
+    private static Project createSubProject(Project root, String name) {
+        return ProjectBuilder.builder().withName(name).withParent(root)
+                .withProjectDir(new File(root.getProjectDir(), name)).build();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(projectDir);
+    }
+
+    @Benchmark
+    public XtextGenerator finalizeGenerator() {
+        return extension.getXtextGenerator().get();
+    }
+
+    @Benchmark
+    public Map<String, String> generatorProperties() {
+        return GeneratorProperties.of(extension.getXtextGenerator().get(), projectDir.toFile());
+    }
+
+    @Benchmark
+    public XtextGeneratorSnapshot snapshotGenerator() {
+        return XtextGeneratorSnapshot.of(extension.getXtextGenerator().get());
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link GeneratedFiles} handles a synthetic src-gen tree when the
+ * generator produces the same output again: writing unchanged files, restoring
+ * unchanged files after the cleaner deleted them, and relocating non-source
+ * files to an unchanged resources directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GeneratedFilesBenchmark {
+
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({ "1000", "10000", "100000" })
+    public int files;
+
+    private Path root;
+    private Path srcGen;
+    private Path resourcesGen;
+    private final List<File> sources = new ArrayList<>();
+    private final List<File> resources = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchmarkFiles.createTempDirectory("generated");
+        srcGen = root.resolve("src-gen");
+        resourcesGen = root.resolve("resources-gen");
+        for (int i = 0; i < files; i++) {
+            String directory = "org/example/p" + (i / FILES_PER_DIRECTORY);
+            Path file = srcGen.resolve(directory).resolve("Generated" + i + ".java");
+            byte[] content = ("package org.example;\n\npublic class Generated" + i + " {\n}\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+            sources.add(file.toFile());
+            contents.add(content);
+            resources.add(resourcesGen.resolve(directory).resolve("Generated" + i + ".xtextbin").toFile());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(root);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpRelocation() throws IOException {
+        for (int i = 0; i < files; i++) {
+            Path source = sources.get(i).toPath().resolveSibling("Generated" + i + ".xtextbin");
+            Files.write(source, contents.get(i));
+            Path resource = resources.get(i).toPath();
+            if (!Files.isRegularFile(resource)) {
+                Files.createDirectories(resource.getParent());
+                Files.write(resource, contents.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public int writeUnchanged() {
+        GeneratedFiles generated = new GeneratedFiles();
+        for (int i = 0; i < files; i++) {
+            generated.write(sources.get(i), contents.get(i));
+        }
+        return generated.getSkipped();
+    }
+
+    @Benchmark
+    public int restoreCleaned() throws IOException {
+        RetainedFiles retainedFiles = new RetainedFiles(root.resolve("retained").toFile(),
+                Collections.singleton(srcGen.toFile()));
+        retainedFiles.retainAll();
+        for (File source : sources) {
+            Files.delete(source.toPath());
+        }
+        GeneratedFiles generated = new GeneratedFiles();
+        generated.setRetainedFiles(retainedFiles);
+        for (int i = 0; i < files; i++) {
+            generated.write(sources.get(i), contents.get(i));
+        }
+        generated.restoreRetained();
+        return generated.getSkipped();
+    }
+
+    @Benchmark
+    public int relocateUnchanged() {
+        GeneratedFiles generated = new GeneratedFiles();
+        for (int i = 0; i < files; i++) {
+            File source = new File(sources.get(i).getParentFile(), "Generated" + i + ".xtextbin");
+            generated.move(source, resources.get(i));
+        }
+        return generated.getSkipped();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures merging Xtext-generated manifests with {@link ManifestMerge}
+ * and an entry action like a typical {@code merge} configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ManifestMergeBenchmark {
+
+    @Param({ "1", "10" })
+    public int manifests;
+
+    @Param({ "10", "1000" })
+    public int exportedPackages;
+
+    private Path directory;
+    private final List<File> files = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkFiles.createTempDirectory("manifest");
+        for (int i = 0; i < manifests; i++) {
+            StringBuilder exports = new StringBuilder();
+            for (int j = 0; j < exportedPackages; j++) {
+                exports.append(j == 0 ? "" : ",").append("org.example.mydsl").append(i).append(".p").append(j);
+            }
+            ManifestContents manifest = new ManifestContents();
+            manifest.getAttributes().put("Bundle-ManifestVersion", "2");
+            manifest.getAttributes().put("Bundle-SymbolicName", "org.example.mydsl" + i + "; singleton:=true");
+            manifest.getAttributes().put("Export-Package", exports.toString());
+            manifest.getAttributes().put("Require-Bundle", "org.eclipse.xtext,org.eclipse.xtext.xbase");
+            File file = directory.resolve("MANIFEST" + i + ".MF").toFile();
+            Files.write(file.toPath(), manifest.toByteArray());
+            files.add(file);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public byte[] merge() {
+        ManifestContents merged = new ManifestContents();
+        for (File file : files) {
+            ManifestMerge spec = new ManifestMerge(path -> (File) path);
+            spec.from(file);
+            spec.eachEntry(details -> {
+                if ("Export-Package".equals(details.getKey()) && details.getBaseValue() != null) {
+                    details.setValue(details.getBaseValue() + ',' + details.getMergeValue());
+                }
+            });
+            merged = spec.merge(merged);
+        }
+        return merged.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] readAndWrite() throws IOException {
+        byte[] content = Files.readAllBytes(files.get(0).toPath());
+        return ManifestContents.read(new ByteArrayInputStream(content), StandardCharsets.UTF_8, "benchmark")
+                .toByteArray();
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding {@code build.properties} and Eclipse
+ * preference files with {@link PropertiesCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PropertiesCodecBenchmark {
+
+    @Param({ "10", "1000" })
+    public int properties;
+
+    private Map<String, String> decoded;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        decoded = new LinkedHashMap<>();
+        for (int i = properties - 1; i >= 0; i--) {
+            decoded.put("org.eclipse.pde.key" + i, "META-INF/,plugin.xml,src-gen/p" + i + "/:\u00e9");
+        }
+        encoded = PropertiesCodec.encode(decoded);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return PropertiesCodec.encode(decoded);
+    }
+
+    @Benchmark
+    public Map<String, String> decode() {
+        return PropertiesCodec.decode(encoded);
+    }
+
+}
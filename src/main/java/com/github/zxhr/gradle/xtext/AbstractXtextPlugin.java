@@ -1,29 +1,20 @@
 package com.github.zxhr.gradle.xtext;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.function.Function;
 
-import org.gradle.api.Action;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
-import org.gradle.api.UncheckedIOException;
 import org.gradle.api.UnknownTaskException;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.provider.Provider;
-import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
@@ -64,12 +55,22 @@
  * {@link Project#getBuildDir()}{@code /src-gen/<sourceSetName>/resources/assets}</li>
  * <li>Adds the {@link ISubGradleProjectConfig#getSrcGenDirectory()} to the java
  * source set {@link SourceDirectorySet#getSrcDirs() directory}</li>
- * <li>Adds the parent directories of
+ * <li>Adds {@link ISubGradleProjectConfig#getResourcesGenDirectory()}, where the
+ * generator writes the files of the src-gen directory which are not Java or
+ * Xtend sources, and the parent directories of
  * {@link ISubGradleProjectConfig#getMetaInfDirectory()},
  * {@link IBundleGradleProjectConfig#getPluginXml()},
  * {@link IRuntimeGradleProjectConfig#getEcoreModelDirectory()}, and
  * {@link IWebGradleProjectConfig#getAssetsDirectory()} (when applicable) to the
  * resource source set {@link SourceDirectorySet#getSrcDirs() directory}</li>
+ * <li>Registers the project with the {@link XtextProjectRegistry} and
+ * publishes the project config as variants, which the nearest project
+ * applying the {@link XtextRootProjectPlugin} resolves</li>
+ * <li>Resolves the generated directories from the variants published by the
+ * root project, so that the project depends on the root project's
+ * {@link GenerateMwe2} task without accessing the root project's model</li>
+ * <li>Sets the project's {@code ext.xtextVersion} to the Xtext version the
+ * root project publishes with the generated directories</li>
  * </ul>
  * 
  * @param <C> configuration type
@@ -112,13 +113,20 @@ public void apply(Project project) {
         project.getPluginManager().apply(JavaPlugin.class);
         C projectConfig = configConstructor.apply(project);
         project.getExtensions().add(configClass, extensionName, projectConfig);
-        configure(project, sourceSetName, projectConfig);
-        if (IBundleGradleProjectConfig.class.isAssignableFrom(configClass)) {
-            configurePdeTask(project);
+        XtextProjectRegistry registry = XtextProjectRegistry.of(project);
+        registry.registerSubProject(project, extensionName);
+        XtextSubProject.publish(project, extensionName, projectConfig);
+        XtextGeneratedOutputs generated = XtextGeneratedOutputs.consume(project, extensionName, configClass,
+                projectConfig, registry);
+        XtextRootProjectPlugin.addXtextVersion(project, generated.getXtextVersion());
+        configure(project, sourceSetName, projectConfig, generated);
+        if (projectConfig instanceof IBundleGradleProjectConfig) {
+            configurePdeTask(project, sourceSetName, (IBundleGradleProjectConfig) projectConfig, generated);
         }
     }
 
-    private static void configure(Project project, String sourceSetName, ISubGradleProjectConfig projectConfig) {
+    private static void configure(Project project, String sourceSetName, ISubGradleProjectConfig projectConfig,
+            XtextGeneratedOutputs generated) {
         SourceSetContainer sourceSets = project.getConvention().getPlugin(JavaPluginConvention.class).getSourceSets();
         NamedDomainObjectProvider<SourceSet> sourceSet = sourceSets.named(sourceSetName);
         Provider<File> srcDir = sourceSet.map(s -> s.getJava().getSrcDirs().iterator().next());
@@ -146,99 +154,53 @@ private static void configure(Project project, String sourceSetName, ISubGradleP
             IWebGradleProjectConfig webConfig = (IWebGradleProjectConfig) projectConfig;
             webConfig.getAssetsDirectory().set(projectConfig.getResourcesGenDirectory().map(d -> d.dir("assets")));
         }
-        sourceSet.configure(ss -> configureSourceSet(project, ss, projectConfig));
+        sourceSet.configure(ss -> configureSourceSet(project, ss, projectConfig, generated));
     }
 
     private static void configureSourceSet(Project project, SourceSet sourceSet,
-            ISubGradleProjectConfig projectConfig) {
-        Provider<XtextRootProjectExtension> rootExtension = project
-                .provider(() -> project.getExtensions().getByType(XtextRootProjectExtension.class));
-        Provider<?> generateMwe2 = rootExtension.flatMap(XtextRootProjectExtension::getGenerateMwe2Task);
-        project.getTasks().named(sourceSet.getCompileJavaTaskName(), task -> task.dependsOn(generateMwe2));
-        project.getTasks().named(sourceSet.getProcessResourcesTaskName(), task -> task.dependsOn(generateMwe2));
-        sourceSet.getJava().srcDir(projectConfig.getSrcGenDirectory());
-        SourceDirectorySet resources = sourceSet.getResources();
-        SetProperty<File> resourceDirs = project.getObjects().setProperty(File.class);
-        resourceDirs.add(projectConfig.getMetaInfDirectory().getAsFile().map(File::getParentFile));
-
-        if (projectConfig instanceof IBundleGradleProjectConfig) {
-            IBundleGradleProjectConfig bundleConfig = (IBundleGradleProjectConfig) projectConfig;
-            resourceDirs.add(bundleConfig.getPluginXml().getAsFile().map(File::getParentFile));
-            if (SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSet.getName())) {
-                project.getPluginManager().apply(MergeManifestPlugin.class);
-                TaskContainer tasks = project.getTasks();
-                tasks.named(MERGE_MANIFEST_TASK_NAME, MergeManifest.class, task -> {
-                    task.getManifests().from(bundleConfig.getManifest());
-                });
-            }
-        }
-        if (projectConfig instanceof IRuntimeGradleProjectConfig) {
-            IRuntimeGradleProjectConfig runtimeConfig = (IRuntimeGradleProjectConfig) projectConfig;
-            resourceDirs.add(runtimeConfig.getEcoreModelDirectory().getAsFile().map(File::getParentFile));
+            ISubGradleProjectConfig projectConfig, XtextGeneratedOutputs generated) {
+        sourceSet.getJava().srcDir(generated.getJava());
+        sourceSet.getResources().srcDir(generated.getResources());
+        if (!(projectConfig instanceof IBundleGradleProjectConfig)) {
+            return;
         }
-        if (projectConfig instanceof IWebGradleProjectConfig) {
-            IWebGradleProjectConfig webConfig = (IWebGradleProjectConfig) projectConfig;
-            resourceDirs.add(webConfig.getAssetsDirectory().getAsFile().map(File::getParentFile));
-        }
-        project.afterEvaluate(__ -> {
-            rootExtension.get().getGenerateMwe2Task().configure(task -> {
-                task.doLast(new Action<Task>() {
-                    @Override
-                    public void execute(Task t) {
-                        Path srcGenDir = projectConfig.getSrcGenDirectory().get().getAsFile().toPath();
-                        Path resourcesDir = projectConfig.getResourcesGenDirectory().get().getAsFile().toPath();
-                        moveXtextFilesToResources(srcGenDir, resourcesDir);
-                    }
-                });
+        IBundleGradleProjectConfig bundleConfig = (IBundleGradleProjectConfig) projectConfig;
+        if (SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSet.getName())) {
+            project.getPluginManager().apply(MergeManifestPlugin.class);
+            project.getTasks().named(MERGE_MANIFEST_TASK_NAME, MergeManifest.class, task -> {
+                task.getManifests().from(project.files(bundleConfig.getManifest()).builtBy(generated.getResources()));
             });
-        });
-        resources.srcDir(resourceDirs);
-    }
-
-    private static void moveXtextFilesToResources(Path srcGenDir, Path resourcesDir) {
-        try {
-            Files.walkFileTree(srcGenDir, new SimpleFileVisitor<Path>() {
-
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (isNonSourceFile(file)) {
-                        Path destination = resourcesDir.resolve(srcGenDir.relativize(file));
-                        Files.createDirectories(destination.getParent());
-                        Files.move(file, destination);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                    boolean empty;
-                    try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
-                        empty = !dirStream.iterator().hasNext();
-                    }
-                    if (empty) {
-                        Files.delete(dir);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
+        } else {
+            // test bundles are not jarred, so their merged manifest is only used for Eclipse PDE
+            String taskName = mergeManifestTaskName(sourceSet.getName());
+            project.getTasks().register(taskName, MergeManifest.class, task -> {
+                task.getManifests().from(project.files(bundleConfig.getManifest()).builtBy(generated.getResources()));
+                task.getMergedManifest().convention(
+                        project.getLayout().getBuildDirectory().file("xtext/" + taskName + "/MANIFEST.MF"));
             });
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
 
-    private static boolean isNonSourceFile(Path file) {
-        String filename = file.getFileName().toString().toLowerCase();
-        String extension = filename.substring(filename.lastIndexOf('.') + 1);
-        return !("java".equals(extension) || "xtend".equals(extension));
+    /**
+     * Returns the name of the {@link MergeManifest} task of the source set:
+     * {@value #MERGE_MANIFEST_TASK_NAME} for the main source set and
+     * {@code merge<SourceSetName>Manifest} for the others.
+     */
+    private static String mergeManifestTaskName(String sourceSetName) {
+        if (SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSetName)) {
+            return MERGE_MANIFEST_TASK_NAME;
+        }
+        return "merge" + Character.toUpperCase(sourceSetName.charAt(0)) + sourceSetName.substring(1) + "Manifest";
     }
 
-    private static void configurePdeTask(Project project) {
+    private static void configurePdeTask(Project project, String sourceSetName,
+            IBundleGradleProjectConfig bundleConfig, XtextGeneratedOutputs generated) {
         project.getPlugins().withType(EclipsePlugin.class, plugin -> {
             TaskContainer tasks = project.getTasks();
             TaskProvider<ConfigurePde> configurePde;
             try {
-                tasks.named(CONFIGURE_PDE_TASK_NAME, ConfigurePde.class);
+                configurePde = tasks.named(CONFIGURE_PDE_TASK_NAME, ConfigurePde.class);
+                configurePdeInputs(project, configurePde, sourceSetName, bundleConfig, generated);
                 return;
             } catch (UnknownTaskException e) {
                 configurePde = tasks.register(CONFIGURE_PDE_TASK_NAME, ConfigurePde.class, task -> {
@@ -247,8 +209,8 @@ private static void configurePdeTask(Project project) {
                     task.getPdeDirectory().set(project.getLayout().getBuildDirectory().dir("pde"));
                     task.getPdeSettingFile().convention(
                             project.getLayout().getProjectDirectory().file(".settings/org.eclipse.pde.core.prefs"));
-                    task.getJar().set(tasks.named(JavaPlugin.JAR_TASK_NAME, Jar.class).flatMap(Jar::getArchiveFile));
                 });
+                configurePdeInputs(project, configurePde, sourceSetName, bundleConfig, generated);
                 SourceSetContainer sourceSets = project.getConvention().getPlugin(JavaPluginConvention.class)
                         .getSourceSets();
                 SourceSet pde = sourceSets.create("pde");
@@ -260,4 +222,30 @@ private static void configurePdeTask(Project project) {
         });
     }
 
+    private static void configurePdeInputs(Project project, TaskProvider<ConfigurePde> configurePde,
+            String sourceSetName, IBundleGradleProjectConfig bundleConfig, XtextGeneratedOutputs generated) {
+        TaskProvider<MergeManifest> mergeManifest = project.getTasks().named(mergeManifestTaskName(sourceSetName),
+                MergeManifest.class);
+        Provider<RegularFile> none = project.getProviders().provider(() -> null);
+        if (!SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSetName)) {
+            // the main bundle takes precedence; a test bundle only configures projects without one
+            configurePde.configure(task -> {
+                task.getManifest()
+                        .convention(mergeManifest.flatMap(t -> t.getEnabled() ? t.getMergedManifest() : none));
+                task.getPluginXml().convention(bundleConfig.getPluginXml().map(f -> f.getAsFile().isFile() ? f : null));
+                task.dependsOn(generated.getResources());
+            });
+            return;
+        }
+        Provider<RegularFile> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class)
+                .flatMap(Jar::getArchiveFile);
+        configurePde.configure(task -> {
+            // the manifest is only taken from the Jar if the Xtext-generated manifests are not merged
+            task.getManifest().set(mergeManifest.flatMap(t -> t.getEnabled() ? t.getMergedManifest() : none));
+            task.getJar().set(mergeManifest.flatMap(t -> t.getEnabled() ? none : jar));
+            task.getPluginXml().set(bundleConfig.getPluginXml());
+            task.dependsOn(generated.getResources());
+        });
+    }
+
 }
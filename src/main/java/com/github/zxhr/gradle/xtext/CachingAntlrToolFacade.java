@@ -0,0 +1,215 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * A {@link GradleAntlrToolFacade} which caches the files the ANTLR tool
+ * generates for a grammar, so that the tool does not run again while the
+ * grammar the ANTLR fragments derive from the Xtext grammar does not change.
+ *
+ * <p>
+ * The output is keyed by the hash of the grammar's content, the encoding, the
+ * tool's options, the token vocabulary the grammar imports, the Xtext version
+ * and the classpath. Only the output of the last run is kept for each grammar
+ * file, so that the cache does not grow with each change of a grammar. The
+ * ANTLR fragments post-process the restored files exactly like the files the
+ * tool generates.
+ * </p>
+ */
+class CachingAntlrToolFacade extends GradleAntlrToolFacade {
+
+    private static final Logger LOGGER = Logging.getLogger(CachingAntlrToolFacade.class);
+    private static final int FORMAT = 1;
+    private static final Pattern TOKEN_VOCAB = Pattern.compile("tokenVocab\\s*=\\s*(\\w+)");
+    private static final List<String> DIRECTORY_OPTIONS = Arrays.asList("-fo", "-lib");
+
+    private final File directory;
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates a facade caching the tool's output in the directory.
+     *
+     * @param directory     the directory the output is cached in
+     * @param projectConfig the project config whose generated files the output
+     *                      is written through
+     */
+    CachingAntlrToolFacade(File directory, GradleXtextProjectConfig projectConfig) {
+        super(projectConfig);
+        this.directory = directory;
+    }
+
+    @Override
+    Map<String, byte[]> generate(File grammar, String encoding, String[] args, int outputDirectoryIndex,
+            File outputDirectory) {
+        Map<String, String> directoryOptions = directoryOptions(args);
+        File cacheFile = new File(directory, hash(grammar.getPath().getBytes(StandardCharsets.UTF_8)) + ".bin");
+        String key;
+        try {
+            key = key(grammar, encoding, args, directoryOptions, outputDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, byte[]> outputs = restore(cacheFile, key);
+        if (outputs != null) {
+            hits++;
+            LOGGER.info("Restored the ANTLR output of {}", grammar.getName());
+            return outputs;
+        }
+        outputs = super.generate(grammar, encoding, args, outputDirectoryIndex, outputDirectory);
+        misses++;
+        store(cacheFile, key, outputs);
+        return outputs;
+    }
+
+    /**
+     * Returns the number of grammars whose output was restored from the cache.
+     *
+     * @return the number of cache hits
+     */
+    int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of grammars the tool ran for.
+     *
+     * @return the number of cache misses
+     */
+    int getMisses() {
+        return misses;
+    }
+
+    private static Map<String, String> directoryOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length - 1; i++) {
+            if (DIRECTORY_OPTIONS.contains(args[i])) {
+                options.put(args[i], args[++i]);
+            }
+        }
+        return options;
+    }
+
+    private static String key(File grammar, String encoding, String[] args, Map<String, String> directoryOptions,
+            File outputDirectory) throws IOException {
+        MessageDigest digest = digest();
+        update(digest, Integer.toString(FORMAT));
+        update(digest, Mwe2InjectorCache.key());
+        update(digest, String.valueOf(encoding));
+        update(digest, grammar.getName());
+        // the directories are not part of the key, but the content of the token vocabulary read from them is
+        for (int i = 0; i < args.length; i++) {
+            update(digest, args[i]);
+            if (DIRECTORY_OPTIONS.contains(args[i])) {
+                i++;
+            }
+        }
+        byte[] content = Files.readAllBytes(grammar.toPath());
+        digest.update(content);
+        Matcher tokenVocab = TOKEN_VOCAB.matcher(new String(content, StandardCharsets.ISO_8859_1));
+        if (tokenVocab.find()) {
+            String tokensFile = tokenVocab.group(1) + ".tokens";
+            File tokens = directoryOptions.containsKey("-lib") ? new File(directoryOptions.get("-lib"), tokensFile)
+                    : new File(outputDirectory, tokensFile);
+            update(digest, tokensFile);
+            if (tokens.isFile()) {
+                digest.update(Files.readAllBytes(tokens.toPath()));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static Map<String, byte[]> restore(File cacheFile, String key) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(cacheFile.toPath()))) {
+            if (in.readInt() != FORMAT || !in.readUTF().equals(key)) {
+                return null;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String name = in.readUTF();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                files.put(name, content);
+            }
+        } catch (IOException e) {
+            LOGGER.info("Ignoring the unreadable ANTLR output {}", cacheFile, e);
+            return null;
+        }
+        return files;
+    }
+
+    private void store(File cacheFile, String key, Map<String, byte[]> outputs) {
+        File temporary = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temporary = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary.toPath()))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(key);
+                out.writeInt(outputs.size());
+                for (Map.Entry<String, byte[]> output : outputs.entrySet()) {
+                    out.writeUTF(output.getKey());
+                    out.writeInt(output.getValue().length);
+                    out.write(output.getValue());
+                }
+            }
+            // replaced atomically, since concurrent workers may restore the output
+            Files.move(temporary.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the output is only cached to speed up later generations
+            LOGGER.warn("Cannot cache the ANTLR output {}", cacheFile, e);
+            if (temporary != null) {
+                temporary.delete();
+            }
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        return toHex(digest().digest(bytes));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -1,17 +1,19 @@
 package com.github.zxhr.gradle.xtext;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
-import java.net.URI;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.Properties;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.inject.Inject;
 
@@ -25,6 +27,8 @@
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.bundling.Jar;
 
@@ -62,13 +66,38 @@ public ConfigurePde() {
     @OutputFile
     public abstract RegularFileProperty getPdeSettingFile();
 
+    /**
+     * Returns the project's {@code MANIFEST.MF}. If absent, the manifest is read
+     * from the {@link #getJar() Jar}.
+     * 
+     * @return the project's {@code MANIFEST.MF}
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getManifest();
+
+    /**
+     * Returns the project's {@code plugin.xml}. If absent, the {@code plugin.xml}
+     * is read from the {@link #getJar() Jar}.
+     * 
+     * @return the project's {@code plugin.xml}
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPluginXml();
+
     /**
      * Returns the {@link Jar} containing the project's {@code plugin.xml} and
-     * {@code MANIFEST.MF}
+     * {@code MANIFEST.MF}, which is only read for the files whose
+     * {@link #getManifest() manifest} or {@link #getPluginXml() plugin.xml}
+     * property is absent.
      * 
      * @return the project's {@link Jar}
      */
     @InputFile
+    @Optional
     public abstract RegularFileProperty getJar();
 
     /**
@@ -88,50 +117,75 @@ public ConfigurePde() {
     @TaskAction
     protected void configurePde() throws IOException {
         Path pdeDirectory = getPdeDirectory().get().getAsFile().toPath();
-        copy(getJar().get().getAsFile().toPath(), pdeDirectory);
-        Properties buildProperties = new MapBackedProperties(getProperties().getOrElse(Collections.emptyMap()));
-        Files.createDirectories(pdeDirectory);
-        try (Writer writer = Files.newBufferedWriter(pdeDirectory.resolve(BUILD_PROPERTIES))) {
-            buildProperties.store(writer, null);
-        }
-        Properties pdePrefs = new MapBackedProperties(new LinkedHashMap<>());
+        copy(pdeDirectory);
+        write(pdeDirectory.resolve(BUILD_PROPERTIES),
+                PropertiesCodec.encode(getProperties().getOrElse(Collections.emptyMap())));
         Path settingsFile = getPdeSettingFile().get().getAsFile().toPath();
-        if (Files.isRegularFile(settingsFile)) {
-            try (Reader reader = Files.newBufferedReader(settingsFile)) {
-                pdePrefs.load(reader);
-            }
-        } else {
-            Files.createDirectories(settingsFile.getParent());
-        }
-        pdePrefs.setProperty("eclipse.preferences.version", "1");
+        Map<String, String> pdePrefs = Files.isRegularFile(settingsFile)
+                ? PropertiesCodec.decode(Files.readAllBytes(settingsFile))
+                : new TreeMap<>();
+        pdePrefs.put("eclipse.preferences.version", "1");
         Path projectDir = getLayout().getProjectDirectory().getAsFile().toPath();
         Path relative = projectDir.relativize(pdeDirectory);
         String path = "";
         for (Path part : relative) {
             path += part + "/";
         }
-        pdePrefs.setProperty("BUNDLE_ROOT_PATH", path);
-        try (Writer writer = Files.newBufferedWriter(settingsFile)) {
-            pdePrefs.store(writer, null);
-        }
+        pdePrefs.put("BUNDLE_ROOT_PATH", path);
+        write(settingsFile, PropertiesCodec.encode(pdePrefs));
     }
 
-    private static void copy(Path jarFile, Path directory) throws IOException {
-        URI zipUri = URI.create("jar:" + jarFile.toUri());
-        try (FileSystem zipFs = FileSystems.newFileSystem(zipUri, Collections.emptyMap())) {
-            Path manifest = zipFs.getPath(META_INF, MANIFEST);
-            if (Files.isRegularFile(manifest)) {
-                Path metaInf = directory.resolve(META_INF);
-                Path destination = metaInf.resolve(MANIFEST);
-                Files.createDirectories(metaInf);
-                Files.copy(manifest, destination, StandardCopyOption.REPLACE_EXISTING);
+    private void copy(Path directory) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Set<String> fromJar = new LinkedHashSet<>();
+        read(getManifest(), META_INF + '/' + MANIFEST, entries, fromJar);
+        read(getPluginXml(), PLUGIN_XML, entries, fromJar);
+        if (!fromJar.isEmpty() && getJar().isPresent()) {
+            try (ZipFile jar = new ZipFile(getJar().get().getAsFile())) {
+                for (String name : fromJar) {
+                    ZipEntry entry = jar.getEntry(name);
+                    if (entry != null && !entry.isDirectory()) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            entries.put(name, readAllBytes(in));
+                        }
+                    }
+                }
             }
-            Path pluginXml = zipFs.getPath(PLUGIN_XML);
-            if (Files.isRegularFile(pluginXml)) {
-                Path destination = directory.resolve(PLUGIN_XML);
-                Files.copy(pluginXml, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            write(directory.resolve(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private static void read(RegularFileProperty file, String name, Map<String, byte[]> entries, Set<String> fromJar)
+            throws IOException {
+        if (file.isPresent()) {
+            Path path = file.get().getAsFile().toPath();
+            if (Files.isRegularFile(path)) {
+                entries.put(name, Files.readAllBytes(path));
             }
+        } else {
+            fromJar.add(name);
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(Path file, byte[] content) throws IOException {
+        if (Files.isRegularFile(file) && Files.size(file) == content.length
+                && Arrays.equals(Files.readAllBytes(file), content)) {
+            return;
         }
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
     }
 
 }
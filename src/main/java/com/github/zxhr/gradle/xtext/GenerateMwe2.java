@@ -1,50 +1,150 @@
 package com.github.zxhr.gradle.xtext;
 
 import java.io.File;
-import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import org.eclipse.emf.mwe2.language.Mwe2StandaloneSetup;
-import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext;
-import org.eclipse.emf.mwe2.runtime.workflow.Workflow;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+
+import org.eclipse.xtext.util.XtextVersion;
 import org.eclipse.xtext.xtext.generator.XtextGenerator;
 import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.eclipse.xtext.xtext.generator.model.PluginXmlAccess;
+import org.eclipse.xtext.xtext.generator.model.project.BundleProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.RuntimeProjectConfig;
 import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.WebProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.ClasspathNormalizer;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.OutputDirectories;
+import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
-import com.google.inject.Injector;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 /**
  * Task for generating an Xtext project.
  */
+@CacheableTask
 public abstract class GenerateMwe2 extends DefaultTask {
 
+    private final Provider<Map<String, String>> generatorProperties;
+
     public GenerateMwe2() {
         getGenerator().finalizeValueOnRead();
-        ((Task) this).getInputs().files(getGenerator().map(generator -> {
+        getIsolationMode().convention(IsolationMode.NONE);
+        getParallel().convention(false);
+        getReuseLoadedGrammars().convention(false);
+        getStoreParsedGrammars().convention(false);
+        getCacheAntlrOutput().convention(false);
+        getStateDirectory().convention(getLayout().getBuildDirectory().dir("xtext/" + getName()));
+        getMetricsReport().convention(getLayout().getBuildDirectory().file("reports/xtext/" + getName() + ".json"));
+        getXtextVersion().convention(XtextVersion.getCurrent().getVersion());
+        File rootDirectory = getLayout().getProjectDirectory().getAsFile();
+        generatorProperties = getGenerator().map(generator -> GeneratorProperties.of(generator, rootDirectory));
+        Provider<XtextGenerator> configuration = getGenerator();
+        getGrammars().from(configuration.map(generator -> {
             List<XtextGeneratorLanguage> languages = generator.getLanguageConfigs();
             List<File> grammars = new ArrayList<>(languages.size());
             for (XtextGeneratorLanguage language : languages) {
-                URI uri = URI.create(language.getGrammarUri());
-                if (uri.getScheme() == null || "file".equals(uri.getScheme())) {
-                    grammars.add(new File(uri));
+                File grammar = GrammarDependencies.grammarFile(language);
+                if (grammar != null) {
+                    grammars.add(grammar);
                 }
             }
             return grammars;
-        })).withPathSensitivity(PathSensitivity.NONE).withPropertyName("grammars");
-        ((Task) this).getOutputs().dirs(getGenerator().map(generator -> {
-            List<File> outputDirs = new ArrayList<>();
-            for (SubProjectConfig projectConfig : generator.getConfiguration().getProject().getEnabledProjects()) {
-                outputDirs.add(new File(projectConfig.getSrcGenPath()));
-            }
+        }));
+        ((Task) this).getInputs()
+                .files(getIsolationMode().flatMap(mode -> getParallel().map(parallel -> {
+                    return mode == IsolationMode.NONE && !parallel ? Collections.emptyList() : getGeneratorClasspath();
+                })))
+                .withNormalizer(ClasspathNormalizer.class).withPropertyName("generatorClasspath");
+        // each sub-project's outputs are tracked under a stable name, independent of the other sub-projects
+        ((Task) this).getOutputs().dirs(configuration.map(generator -> {
+            Map<String, File> outputDirs = new LinkedHashMap<>();
+            getEnabledProjects(generator).forEach((name, projectConfig) -> {
+                outputDirs.put(name, new File(projectConfig.getSrcGenPath()));
+            });
             return outputDirs;
         })).withPropertyName("srcGenDirs");
+        // the metadata locations are only declared when they lie outside the generated directories, which already
+        // contain them by default, so that no output overlaps another one
+        ((Task) this).getOutputs().dirs(configuration.map(generator -> {
+            List<File> generatedDirs = getGeneratedDirectories(generator);
+            Map<String, File> outputDirs = new LinkedHashMap<>();
+            getEnabledProjects(generator).forEach((name, projectConfig) -> {
+                if (projectConfig.getMetaInfPath() != null) {
+                    putOutside(outputDirs, name + ".metaInf", new File(projectConfig.getMetaInfPath()),
+                            generatedDirs);
+                }
+                if (projectConfig instanceof RuntimeProjectConfig
+                        && ((RuntimeProjectConfig) projectConfig).getEcoreModelPath() != null) {
+                    putOutside(outputDirs, name + ".ecoreModel",
+                            new File(((RuntimeProjectConfig) projectConfig).getEcoreModelPath()), generatedDirs);
+                }
+                if (projectConfig instanceof WebProjectConfig
+                        && ((WebProjectConfig) projectConfig).getAssetsPath() != null) {
+                    putOutside(outputDirs, name + ".assets",
+                            new File(((WebProjectConfig) projectConfig).getAssetsPath()), generatedDirs);
+                }
+            });
+            return outputDirs;
+        })).withPropertyName("resourceDirs");
+        getResourcesGenDirectories().from(configuration.map(GenerateMwe2::resourcesGenDirectories));
+        ((Task) this).getOutputs().files(configuration.map(generator -> {
+            List<File> generatedDirs = getGeneratedDirectories(generator);
+            Map<String, File> outputFiles = new LinkedHashMap<>();
+            getEnabledProjects(generator).forEach((name, projectConfig) -> {
+                if (projectConfig instanceof BundleProjectConfig) {
+                    PluginXmlAccess pluginXml = ((BundleProjectConfig) projectConfig).getPluginXml();
+                    if (pluginXml != null && pluginXml.getPath() != null) {
+                        putOutside(outputFiles, name, new File(projectConfig.getRootPath(), pluginXml.getPath()),
+                                generatedDirs);
+                    }
+                }
+            });
+            return outputFiles;
+        })).withPropertyName("pluginXmls");
     }
 
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract ProjectLayout getLayout();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
     /**
      * Returns the {@link XtextGenerator} used for generating the Xtext project.
      * 
@@ -53,14 +153,416 @@ public GenerateMwe2() {
     @Internal
     public abstract Property<XtextGenerator> getGenerator();
 
+    /**
+     * Returns the declared configuration of the {@link #getGenerator()
+     * generator}: the code config, the sub-project configs, the names, grammar
+     * URIs and file extensions of the languages and the configuration of their
+     * fragments, including the
+     * {@link XtextRootProjectExtension#parserOptions(String, org.gradle.api.Action)
+     * parser options}. Paths below the root project directory are relative to
+     * it.
+     * 
+     * @return the declared configuration of the generator
+     */
+    @Input
+    public Provider<Map<String, String>> getGeneratorProperties() {
+        return generatorProperties;
+    }
+
+    /**
+     * Returns the version of Xtext the generator runs with. Defaults to the
+     * version on the build script classpath.
+     * 
+     * @return the version of Xtext the generator runs with
+     */
+    @Input
+    public abstract Property<String> getXtextVersion();
+
+    /**
+     * Returns the directories the non-source files generated into the
+     * sub-projects' src-gen directories are written to.
+     * 
+     * @return the directories of the sub-projects' generated resources
+     */
+    @OutputDirectories
+    public abstract ConfigurableFileCollection getResourcesGenDirectories();
+
+    /**
+     * Returns the grammar files of the generator's languages.
+     * 
+     * <p>
+     * When only some of the grammars change, only the languages of those
+     * grammars and the languages depending on them are generated again, and the
+     * output of the other languages is kept.
+     * </p>
+     * 
+     * @return the grammar files of the generator's languages
+     */
+    @InputFiles
+    @Incremental
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getGrammars();
+
+    /**
+     * Returns the service providing the MWE2 injector when the
+     * {@link #getIsolationMode() isolation mode} is {@link IsolationMode#NONE}.
+     * 
+     * @return the service providing the MWE2 injector
+     */
+    @Internal
+    public abstract Property<XtextGeneratorService> getGeneratorService();
+
+    /**
+     * Returns how the generator is isolated from the Gradle daemon. Defaults to
+     * {@link IsolationMode#NONE}. Ignored when the languages are generated in
+     * {@link #getParallel() parallel}, which always uses
+     * {@link IsolationMode#PROCESS}.
+     * 
+     * @return how the generator is isolated from the Gradle daemon
+     */
+    @Internal
+    public abstract Property<IsolationMode> getIsolationMode();
+
+    /**
+     * Returns the classpath for running the generator when the
+     * {@link #getIsolationMode() isolation mode} is not
+     * {@link IsolationMode#NONE}.
+     * 
+     * @return the classpath for running the generator in isolation
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getGeneratorClasspath();
+
+    /**
+     * Returns whether the languages are generated concurrently. Defaults to
+     * {@code false}.
+     * 
+     * <p>
+     * When enabled, the generator always runs with
+     * {@link IsolationMode#PROCESS process isolation}, overriding the
+     * {@link #getIsolationMode() isolation mode}, since the EMF registries used by
+     * Xtext are global to a JVM. Languages whose grammars inherit from or import
+     * the metamodel of another language are generated after that language; the
+     * languages which only depend on languages generated before are generated
+     * concurrently.
+     * </p>
+     * 
+     * @return whether the languages are generated concurrently
+     */
+    @Internal
+    public abstract Property<Boolean> getParallel();
+
+    /**
+     * Returns the maximum number of languages which are generated concurrently
+     * when {@link #getParallel() parallel} generation is enabled. If absent, each
+     * language is submitted as its own work item and only Gradle's maximum number
+     * of workers applies; otherwise the concurrently generated languages are
+     * split into at most this many work items, which each generate their
+     * languages one after another.
+     * 
+     * @return the maximum number of languages which are generated concurrently
+     */
+    @Internal
+    public abstract Property<Integer> getMaxParallelLanguages();
+
+    /**
+     * Returns whether the grammars and models the languages load from the
+     * classpath, such as inherited grammars like {@code Terminals} or
+     * {@code Xbase} and their genmodels, are kept in memory after the generation
+     * and reused by the next generation in the same JVM instead of being parsed
+     * and linked again. Defaults to {@code false}.
+     * 
+     * <p>
+     * The loaded grammars outlive the build in the Gradle daemon when the
+     * {@link #getIsolationMode() isolation mode} is {@link IsolationMode#NONE},
+     * and in the worker processes when it is {@link IsolationMode#PROCESS} or
+     * when the languages are generated in {@link #getParallel() parallel}, which
+     * speeds up repeated generations, e.g. with {@code --continuous}. The grammars
+     * of the generated languages are always loaded again. The kept grammars are
+     * discarded when the Xtext version or the classpath changes.
+     * </p>
+     * 
+     * @return whether grammars loaded from the classpath are reused
+     */
+    @Internal
+    public abstract Property<Boolean> getReuseLoadedGrammars();
+
+    /**
+     * Returns whether the grammars the languages load from the classpath, such as
+     * inherited grammars like {@code Terminals} or {@code Xbase}, are stored
+     * parsed and linked in the {@link #getStateDirectory() state directory} and
+     * loaded by later generations instead of being parsed and linked again.
+     * Defaults to {@code false}.
+     * 
+     * <p>
+     * Unlike {@link #getReuseLoadedGrammars()}, the stored grammars outlive the
+     * JVM, so they also speed up the first generation in a new Gradle daemon or
+     * worker process. They are ignored when the Xtext version, the classpath or
+     * the content of any of the grammars changes. The grammars of the generated
+     * languages are always parsed.
+     * </p>
+     * 
+     * @return whether parsed grammars are stored for later generations
+     */
+    @Internal
+    public abstract Property<Boolean> getStoreParsedGrammars();
+
+    /**
+     * Returns whether the output of the ANTLR tool for the runtime and content
+     * assist parsers is cached in the {@link #getStateDirectory() state
+     * directory} and restored by later generations instead of running the tool
+     * again. Defaults to {@code false}.
+     * 
+     * <p>
+     * The output is keyed by the hash of the ANTLR grammar the parser fragments
+     * derive from the Xtext grammar and of the ANTLR options, so changes which
+     * do not change the syntax, such as changes of the validation or scoping
+     * configuration, do not run the tool. The output is discarded when the Xtext
+     * version or the classpath changes.
+     * </p>
+     * 
+     * @return whether the output of the ANTLR tool is cached
+     */
+    @Internal
+    public abstract Property<Boolean> getCacheAntlrOutput();
+
+    /**
+     * Returns the directory where the task keeps intermediate generator state.
+     * 
+     * @return the directory where the task keeps intermediate generator state
+     */
+    @LocalState
+    public abstract DirectoryProperty getStateDirectory();
+
+    /**
+     * Returns the file the JSON report of the time spent in each phase of the
+     * generation, in each language and in each of the languages' fragments, the
+     * number of files and bytes written and the peak heap usage is written to.
+     * Defaults to {@code build/reports/xtext/<task name>.json}. The metrics are
+     * also logged at info level.
+     * 
+     * <p>
+     * The report describes the last execution of the task, so it is neither an
+     * input nor an output, and it is not written when the task's outputs are
+     * up-to-date or loaded from the build cache.
+     * </p>
+     * 
+     * @return the file the metrics of the generation are reported to
+     */
+    @Internal
+    public abstract RegularFileProperty getMetricsReport();
+
     @TaskAction
-    protected void generateMwe2() {
+    protected void generateMwe2(InputChanges inputChanges) {
+        boolean parallel = getParallel().get();
+        int maxParallel = getMaxParallelLanguages().getOrElse(Integer.MAX_VALUE);
+        if (parallel && maxParallel < 1) {
+            throw new GradleException("maxParallelLanguages must be at least 1 but was " + maxParallel);
+        }
         XtextGenerator generator = getGenerator().get();
-        Injector injector = new Mwe2StandaloneSetup().createInjectorAndDoEMFRegistration();
-        IWorkflowContext ctx = injector.getInstance(IWorkflowContext.class);
-        Workflow workflow = new Workflow();
-        workflow.addComponent(generator);
-        workflow.invoke(ctx);
+        List<XtextGeneratorLanguage> languages = generator.getLanguageConfigs();
+        GrammarDependencies dependencies = GrammarDependencies.of(languages);
+        File contributionsDirectory = getStateDirectory().dir("contributions").get().getAsFile();
+        Set<Integer> generatedLanguages = null;
+        if (inputChanges.isIncremental() && generator instanceof PartitionedXtextGenerator
+                && PartitionedXtextGenerator.hasContributions(contributionsDirectory, dependencies.getNames())) {
+            Set<Integer> changedLanguages = getChangedLanguages(inputChanges, languages);
+            if (changedLanguages != null) {
+                generatedLanguages = dependencies.withDependents(changedLanguages);
+                getLogger().info("Generating {} of {} languages", generatedLanguages.size(), languages.size());
+            }
+        }
+        boolean clean = generatedLanguages == null;
+        if (clean) {
+            generatedLanguages = new TreeSet<>();
+            for (int i = 0; i < languages.size(); i++) {
+                generatedLanguages.add(i);
+            }
+        }
+        getFileSystemOperations().delete(spec -> spec.delete(getMetricsDirectory(), getRetainedFilesDirectory()));
+        IsolationMode isolationMode = getIsolationMode().get();
+        if (isolationMode == IsolationMode.NONE && !parallel) {
+            if (generator instanceof PartitionedXtextGenerator) {
+                PartitionedXtextGenerator partitionedGenerator = (PartitionedXtextGenerator) generator;
+                partitionedGenerator.setClean(clean);
+                partitionedGenerator.setIncremental(!clean);
+                partitionedGenerator.setGeneratedLanguages(generatedLanguages);
+                partitionedGenerator.setInfrastructure(true);
+                partitionedGenerator.setContributionsDirectory(contributionsDirectory);
+                partitionedGenerator.setMetricsReport(getMetricsReport().getAsFile().getOrNull());
+                partitionedGenerator.setReuseLoadedResources(getReuseLoadedGrammars().get());
+                partitionedGenerator.setParsedGrammarsDirectory(getParsedGrammarsDirectory());
+                partitionedGenerator.setOutputIndex(getOutputIndex());
+                partitionedGenerator.setAntlrOutputDirectory(getAntlrOutputDirectory());
+                partitionedGenerator.setRetainedFilesDirectory(getRetainedFilesDirectory());
+            }
+            GenerateMwe2Action.run(generator, getGeneratorService().get().newWorkflowContext());
+            return;
+        }
+        // the workers restore the generator from a copy of its configuration
+        XtextGeneratorSnapshot snapshot = XtextGeneratorSnapshot.of(generator);
+        if (!parallel) {
+            WorkQueue workQueue = createWorkQueue(isolationMode);
+            submit(workQueue, snapshot, generatedLanguages, clean, !clean, true);
+            return;
+        }
+        // compute all work items before submitting any of them
+        List<List<Collection<Integer>>> levels = new ArrayList<>();
+        for (List<List<Integer>> level : dependencies.levels()) {
+            List<Collection<Integer>> workItems = GrammarDependencies.workItems(level, generatedLanguages, maxParallel);
+            if (!workItems.isEmpty()) {
+                levels.add(workItems);
+            }
+        }
+        getLogger().info("Generating {} languages in {} levels", generatedLanguages.size(), levels.size());
+        WorkQueue workQueue = createWorkQueue(IsolationMode.PROCESS);
+        if (clean) {
+            submit(workQueue, snapshot, Collections.emptyList(), true, false, false);
+            workQueue.await();
+        }
+        for (List<Collection<Integer>> level : levels) {
+            // the languages of the next level depend on the languages of this one
+            for (Collection<Integer> workItem : level) {
+                submit(workQueue, snapshot, workItem, false, !clean, false);
+            }
+            workQueue.await();
+        }
+        submit(workQueue, snapshot, Collections.emptyList(), false, !clean, true);
+    }
+
+    private Set<Integer> getChangedLanguages(InputChanges inputChanges, List<XtextGeneratorLanguage> languages) {
+        Map<File, List<Integer>> grammarLanguages = new HashMap<>();
+        for (int i = 0; i < languages.size(); i++) {
+            File grammar = GrammarDependencies.grammarFile(languages.get(i));
+            if (grammar != null) {
+                grammarLanguages.computeIfAbsent(grammar.getAbsoluteFile(), __ -> new ArrayList<>()).add(i);
+            }
+        }
+        Set<Integer> changedLanguages = new TreeSet<>();
+        for (FileChange change : inputChanges.getFileChanges(getGrammars())) {
+            List<Integer> changed = grammarLanguages.get(change.getFile().getAbsoluteFile());
+            if (change.getChangeType() != ChangeType.MODIFIED || changed == null) {
+                return null;
+            }
+            changedLanguages.addAll(changed);
+        }
+        return changedLanguages;
+    }
+
+    private WorkQueue createWorkQueue(IsolationMode isolationMode) {
+        if (isolationMode == IsolationMode.CLASSLOADER) {
+            return getWorkerExecutor().classLoaderIsolation(spec -> {
+                spec.getClasspath().from(getGeneratorClasspath(), getPluginClasspath());
+            });
+        }
+        return getWorkerExecutor().processIsolation(spec -> {
+            spec.getClasspath().from(getGeneratorClasspath(), getPluginClasspath());
+        });
+    }
+
+    private void submit(WorkQueue workQueue, XtextGeneratorSnapshot snapshot, Collection<Integer> languages,
+            boolean clean, boolean incremental, boolean infrastructure) {
+        workQueue.submit(GenerateMwe2Action.class, parameters -> {
+            parameters.getGenerator().set(snapshot);
+            parameters.getGeneratedLanguages().set(languages);
+            parameters.getClean().set(clean);
+            parameters.getIncremental().set(incremental);
+            parameters.getInfrastructure().set(infrastructure);
+            parameters.getContributionsDirectory().set(getStateDirectory().dir("contributions"));
+            parameters.getMetricsDirectory().set(getMetricsDirectory());
+            parameters.getMetricsReport().set(getMetricsReport());
+            parameters.getReuseLoadedGrammars().set(getReuseLoadedGrammars());
+            parameters.getParsedGrammarsDirectory().fileValue(getParsedGrammarsDirectory());
+            parameters.getOutputIndex().set(getOutputIndex());
+            parameters.getAntlrOutputDirectory().fileValue(getAntlrOutputDirectory());
+            parameters.getRetainedFilesDirectory().fileValue(getRetainedFilesDirectory());
+        });
+    }
+
+    private File getParsedGrammarsDirectory() {
+        return getStoreParsedGrammars().get() ? getStateDirectory().dir("grammars").get().getAsFile() : null;
+    }
+
+    private File getAntlrOutputDirectory() {
+        return getCacheAntlrOutput().get() ? getStateDirectory().dir("antlr").get().getAsFile() : null;
+    }
+
+    private File getOutputIndex() {
+        return getStateDirectory().file("outputs.index").get().getAsFile();
+    }
+
+    private File getRetainedFilesDirectory() {
+        return getStateDirectory().dir("retained").get().getAsFile();
+    }
+
+    private File getMetricsDirectory() {
+        return getStateDirectory().dir("metrics").get().getAsFile();
+    }
+
+    /**
+     * Returns the enabled sub-projects keyed by their role, such as
+     * {@code runtime} or {@code genericIde}.
+     */
+    private static List<File> resourcesGenDirectories(XtextGenerator generator) {
+        XtextProjectConfig projectConfig = generator.getConfiguration().getProject();
+        List<File> outputDirs = new ArrayList<>();
+        if (projectConfig instanceof GradleXtextProjectConfig) {
+            for (String resourcesGenPath : ((GradleXtextProjectConfig) projectConfig).getResourcesGenPaths()
+                    .values()) {
+                outputDirs.add(new File(resourcesGenPath));
+            }
+        }
+        return outputDirs;
+    }
+
+    /**
+     * Returns the src-gen and resources-gen directories of the enabled
+     * sub-projects, which are declared as outputs as a whole.
+     */
+    private static List<File> getGeneratedDirectories(XtextGenerator generator) {
+        List<File> generatedDirs = resourcesGenDirectories(generator);
+        for (SubProjectConfig projectConfig : getEnabledProjects(generator).values()) {
+            if (projectConfig.getSrcGenPath() != null) {
+                generatedDirs.add(new File(projectConfig.getSrcGenPath()));
+            }
+        }
+        return generatedDirs;
+    }
+
+    /**
+     * Adds the output location unless it is one of the generated directories or
+     * lies inside one.
+     */
+    private static void putOutside(Map<String, File> outputs, String name, File location,
+            Collection<File> generatedDirs) {
+        Path path = location.toPath().toAbsolutePath().normalize();
+        for (File generatedDir : generatedDirs) {
+            if (path.startsWith(generatedDir.toPath().toAbsolutePath().normalize())) {
+                return;
+            }
+        }
+        outputs.put(name, location);
+    }
+
+    private static Map<String, SubProjectConfig> getEnabledProjects(XtextGenerator generator) {
+        XtextProjectConfig projectConfig = generator.getConfiguration().getProject();
+        Map<String, SubProjectConfig> projects = new LinkedHashMap<>();
+        projects.put("runtime", projectConfig.getRuntime());
+        projects.put("runtimeTest", projectConfig.getRuntimeTest());
+        projects.put("genericIde", projectConfig.getGenericIde());
+        projects.put("eclipsePlugin", projectConfig.getEclipsePlugin());
+        projects.put("eclipsePluginTest", projectConfig.getEclipsePluginTest());
+        projects.put("web", projectConfig.getWeb());
+        projects.values().removeIf(project -> project == null || !project.isEnabled());
+        return projects;
+    }
+
+    private static File getPluginClasspath() {
+        try {
+            return new File(GenerateMwe2Action.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new GradleException("Cannot locate the classpath of " + GenerateMwe2Action.class.getName(), e);
+        }
     }
 
 }
@@ -0,0 +1,165 @@
+package com.github.zxhr.gradle.xtext;
+
+import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext;
+import org.eclipse.emf.mwe2.runtime.workflow.Workflow;
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Runs an {@link XtextGenerator} restored from a
+ * {@link XtextGeneratorSnapshot} in a Gradle worker.
+ */
+public abstract class GenerateMwe2Action implements WorkAction<GenerateMwe2Action.Parameters> {
+
+    /**
+     * Parameters for {@link GenerateMwe2Action}.
+     */
+    public interface Parameters extends WorkParameters {
+
+        /**
+         * Returns the snapshot of the generator to run.
+         * 
+         * @return the snapshot of the generator to run
+         */
+        Property<XtextGeneratorSnapshot> getGenerator();
+
+        /**
+         * Returns whether the output directories are cleaned before generating.
+         * Defaults to {@code true}.
+         * 
+         * @return whether the output directories are cleaned
+         */
+        Property<Boolean> getClean();
+
+        /**
+         * Returns whether only the languages whose grammars changed and their
+         * dependents are generated, so that the stale files are determined from
+         * the index of the previous generation. Defaults to {@code false}.
+         * 
+         * @return whether the generation is incremental
+         */
+        Property<Boolean> getIncremental();
+
+        /**
+         * Returns the indices of the languages to generate.
+         * 
+         * @return the indices of the languages to generate
+         */
+        ListProperty<Integer> getGeneratedLanguages();
+
+        /**
+         * Returns whether the common infrastructure is generated. Defaults to
+         * {@code true}.
+         * 
+         * @return whether the common infrastructure is generated
+         */
+        Property<Boolean> getInfrastructure();
+
+        /**
+         * Returns the directory where the contributions of the generated languages
+         * to the common infrastructure are stored.
+         * 
+         * @return the directory where language contributions are stored
+         */
+        DirectoryProperty getContributionsDirectory();
+
+        /**
+         * Returns the directory where the metrics of a generation are stored
+         * until the common infrastructure is generated.
+         * 
+         * @return the directory where partial metrics are stored
+         */
+        DirectoryProperty getMetricsDirectory();
+
+        /**
+         * Returns the file the metrics of the generation are reported to when
+         * the common infrastructure is generated.
+         * 
+         * @return the file the metrics are reported to
+         */
+        RegularFileProperty getMetricsReport();
+
+        /**
+         * Returns whether the grammars loaded from the classpath are kept for the
+         * next generation in the same worker. Defaults to {@code false}.
+         * 
+         * @return whether loaded grammars are reused
+         */
+        Property<Boolean> getReuseLoadedGrammars();
+
+        /**
+         * Returns the directory where the grammars loaded from the classpath are
+         * stored parsed for later generations. Parsed grammars are not stored if
+         * absent.
+         * 
+         * @return the directory where parsed grammars are stored
+         */
+        DirectoryProperty getParsedGrammarsDirectory();
+
+        /**
+         * Returns the file where the index of the generated files is stored
+         * when the common infrastructure is generated.
+         * 
+         * @return the file where the index of the generated files is stored
+         */
+        RegularFileProperty getOutputIndex();
+
+        /**
+         * Returns the directory where the output of the ANTLR tool is cached for
+         * later generations. The output is not cached if absent.
+         * 
+         * @return the directory where the ANTLR output is cached
+         */
+        DirectoryProperty getAntlrOutputDirectory();
+
+        /**
+         * Returns the directory where the generated files the generation deletes
+         * or overwrites are kept until the common infrastructure is generated.
+         * Files are not retained if absent.
+         * 
+         * @return the directory where deleted or overwritten files are retained
+         */
+        DirectoryProperty getRetainedFilesDirectory();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        PartitionedXtextGenerator generator = parameters.getGenerator().get()
+                .restore(PartitionedXtextGenerator.class);
+        generator.setClean(parameters.getClean().getOrElse(true));
+        generator.setIncremental(parameters.getIncremental().getOrElse(false));
+        generator.setGeneratedLanguages(parameters.getGeneratedLanguages().get());
+        generator.setInfrastructure(parameters.getInfrastructure().getOrElse(true));
+        if (parameters.getContributionsDirectory().isPresent()) {
+            generator.setContributionsDirectory(parameters.getContributionsDirectory().get().getAsFile());
+        }
+        if (parameters.getMetricsDirectory().isPresent()) {
+            generator.setMetricsDirectory(parameters.getMetricsDirectory().get().getAsFile());
+        }
+        generator.setMetricsReport(parameters.getMetricsReport().getAsFile().getOrNull());
+        generator.setReuseLoadedResources(parameters.getReuseLoadedGrammars().getOrElse(false));
+        if (parameters.getParsedGrammarsDirectory().isPresent()) {
+            generator.setParsedGrammarsDirectory(parameters.getParsedGrammarsDirectory().get().getAsFile());
+        }
+        generator.setOutputIndex(parameters.getOutputIndex().getAsFile().getOrNull());
+        if (parameters.getAntlrOutputDirectory().isPresent()) {
+            generator.setAntlrOutputDirectory(parameters.getAntlrOutputDirectory().get().getAsFile());
+        }
+        if (parameters.getRetainedFilesDirectory().isPresent()) {
+            generator.setRetainedFilesDirectory(parameters.getRetainedFilesDirectory().get().getAsFile());
+        }
+        run(generator, Mwe2InjectorCache.get().newWorkflowContext());
+    }
+
+    static void run(XtextGenerator generator, IWorkflowContext ctx) {
+        Workflow workflow = new Workflow();
+        workflow.addComponent(generator);
+        workflow.invoke(ctx);
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModelPackage;
+import org.eclipse.emf.codegen.ecore.genmodel.GenPackage;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.plugin.EcorePlugin;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
+import org.eclipse.xtext.Grammar;
+import org.eclipse.xtext.GrammarUtil;
+import org.eclipse.xtext.xtext.generator.IXtextGeneratorFragment;
+import org.eclipse.xtext.xtext.generator.ecore.EMFGeneratorFragment2;
+import org.eclipse.xtext.xtext.generator.grammarAccess.GrammarAccessFragment2;
+import org.eclipse.xtext.xtext.generator.model.IXtextGeneratorFileSystemAccess;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * The files the fragments save through EMF instead of the generator's file
+ * system access: the ecore models, genmodels and model code of the
+ * {@link EMFGeneratorFragment2} and the binary grammar of the
+ * {@link GrammarAccessFragment2}. They are recorded as generated files from
+ * the paths the fragments save them to, so that they are not deleted as stale
+ * files, and each ecore model is optionally also written in EMF's binary
+ * resource format.
+ *
+ * <p>
+ * EMF does not write model code whose content is unchanged, so the model code
+ * is recorded from the package directories of the saved genmodel: all files in
+ * them belong to the EMF fragment.
+ * </p>
+ */
+final class GeneratedEcoreModels {
+
+    /**
+     * The file extension of the binary ecore models.
+     */
+    static final String BINARY_EXTENSION = "ecorebin";
+
+    private GeneratedEcoreModels() {
+    }
+
+    /**
+     * Records the binary grammar and the ecore models, genmodels and model code
+     * saved by the EMF fragments of a language and writes the binary ecore
+     * models if the project config
+     * {@link GradleXtextProjectConfig#isBinaryEcoreModels() asks for them}.
+     *
+     * @param grammar       the grammar of the language
+     * @param fragments     the fragments of the language
+     * @param projectConfig the project config
+     */
+    static void record(Grammar grammar, List<IXtextGeneratorFragment> fragments,
+            GradleXtextProjectConfig projectConfig) {
+        if (!projectConfig.getRuntime().isEnabled()) {
+            return;
+        }
+        GeneratedFiles generatedFiles = projectConfig.getGeneratedFiles();
+        for (IXtextGeneratorFragment fragment : fragments) {
+            if (fragment instanceof GrammarAccessFragment2) {
+                generatedFiles.setOwner(grammar.getName(), PartitionedXtextGenerator.fragmentName(fragment));
+                IXtextGeneratorFileSystemAccess srcGen = projectConfig.getRuntime().getSrcGen();
+                // the grammar is saved as XMI if the fragment is configured with an XML version
+                for (String path : Arrays.asList(GrammarUtil.getClasspathRelativePathToBinGrammar(grammar),
+                        GrammarUtil.getClasspathRelativePathToXmi(grammar))) {
+                    File file = new File(srcGen.getURI(path).toFileString());
+                    if (file.isFile()) {
+                        generatedFiles.add(file);
+                    }
+                }
+            }
+        }
+        String ecoreModelPath = projectConfig.getRuntime().getEcoreModelPath();
+        if (ecoreModelPath == null) {
+            return;
+        }
+        for (IXtextGeneratorFragment fragment : fragments) {
+            if (!(fragment instanceof EMFGeneratorFragment2)) {
+                continue;
+            }
+            generatedFiles.setOwner(grammar.getName(), PartitionedXtextGenerator.fragmentName(fragment));
+            // the URIs are platform URIs of the runtime project
+            File ecoreModel = new File(ecoreModelPath, uri(fragment, "getEcoreFileUri", grammar).lastSegment());
+            File genModel = new File(ecoreModelPath, uri(fragment, "getGenModelUri", grammar).lastSegment());
+            if (genModel.isFile()) {
+                generatedFiles.add(genModel);
+                for (File modelFile : modelFiles(genModel)) {
+                    generatedFiles.add(modelFile);
+                }
+            }
+            if (ecoreModel.isFile()) {
+                generatedFiles.add(ecoreModel);
+                if (projectConfig.isBinaryEcoreModels()) {
+                    File binaryModel = new File(ecoreModelPath,
+                            ecoreModel.getName().replaceFirst("\\.ecore$", "") + '.' + BINARY_EXTENSION);
+                    generatedFiles.write(binaryModel, toBinary(ecoreModel, binaryModel));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the files in the directories of the packages of the genmodel,
+     * i.e. the model code EMF generated for it.
+     */
+    private static Set<File> modelFiles(File genModelFile) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore",
+                new EcoreResourceFactoryImpl());
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("genmodel",
+                new EcoreResourceFactoryImpl());
+        resourceSet.getPackageRegistry().put(GenModelPackage.eNS_URI, GenModelPackage.eINSTANCE);
+        Resource resource = resourceSet.getResource(URI.createFileURI(genModelFile.getAbsolutePath()), true);
+        Set<File> files = new LinkedHashSet<>();
+        if (resource.getContents().isEmpty() || !(resource.getContents().get(0) instanceof GenModel)) {
+            return files;
+        }
+        GenModel genModel = (GenModel) resource.getContents().get(0);
+        // the model directory is a platform path, which the generator maps to the projects
+        URI modelDirectory = genModel.getModelDirectory() == null ? null
+                : EcorePlugin.resolvePlatformResourcePath(genModel.getModelDirectory());
+        if (modelDirectory == null || !modelDirectory.isFile()) {
+            return files;
+        }
+        for (GenPackage genPackage : genModel.getGenPackages()) {
+            for (String packageName : Arrays.asList(genPackage.getInterfacePackageName(),
+                    genPackage.getReflectionPackageName(), genPackage.getClassPackageName(),
+                    genPackage.getUtilitiesPackageName())) {
+                File[] packageFiles = new File(modelDirectory.toFileString(), packageName.replace('.', '/'))
+                        .listFiles();
+                if (packageFiles == null) {
+                    continue;
+                }
+                for (File packageFile : packageFiles) {
+                    if (packageFile.isFile()) {
+                        files.add(packageFile);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static URI uri(IXtextGeneratorFragment fragment, String name, Grammar grammar) {
+        try {
+            // the URIs are computed by protected methods, which subclasses may override
+            Method method = EMFGeneratorFragment2.class.getDeclaredMethod(name, Grammar.class);
+            method.setAccessible(true);
+            return (URI) method.invoke(fragment, grammar);
+        } catch (ReflectiveOperationException e) {
+            throw new GradleException("Cannot determine the ecore model of " + grammar.getName(), e);
+        }
+    }
+
+    private static byte[] toBinary(File ecoreModel, File binaryModel) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore",
+                new EcoreResourceFactoryImpl());
+        Resource xmi = resourceSet.getResource(URI.createFileURI(ecoreModel.getAbsolutePath()), true);
+        // references to other models are stored relative to the binary model
+        Resource binary = new BinaryResourceImpl(URI.createFileURI(binaryModel.getAbsolutePath()));
+        resourceSet.getResources().add(binary);
+        binary.getContents().addAll(xmi.getContents());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            binary.save(content, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return content.toByteArray();
+    }
+}
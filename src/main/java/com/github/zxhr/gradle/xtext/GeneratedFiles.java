@@ -0,0 +1,276 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * The files written by the generator's file system accesses during a
+ * generation, together with the language and fragment which generated them.
+ * Files are only written when their content changes, so that unchanged files
+ * keep their timestamps. With {@link RetainedFiles}, a file which is generated
+ * with the content it had before the cleaner deleted it or before it was
+ * overwritten during the generation is restored instead.
+ */
+final class GeneratedFiles {
+
+    private final Map<String, Owner> files = new LinkedHashMap<>();
+    private Owner owner = new Owner(null, null);
+    private RetainedFiles retainedFiles;
+    private int written;
+    private int skipped;
+    private int deleted;
+    private long bytesWritten;
+    private long writeNanos;
+
+    /**
+     * Sets the language and fragment which generate the files recorded from now
+     * on.
+     * 
+     * @param language the grammar name of the language, or {@code null} for the
+     *                 common infrastructure
+     * @param fragment the name of the fragment, or {@code null} for the
+     *                 generator itself
+     */
+    void setOwner(String language, String fragment) {
+        owner = new Owner(language, fragment);
+    }
+
+    /**
+     * Sets the previous versions of the generated files, which are restored
+     * when a file is generated with the same content and retained when a file is
+     * overwritten.
+     * 
+     * @param retainedFiles the retained files, or {@code null}
+     */
+    void setRetainedFiles(RetainedFiles retainedFiles) {
+        this.retainedFiles = retainedFiles;
+    }
+
+    /**
+     * Writes the content to the file unless the file already has the content.
+     * 
+     * @param file    the file
+     * @param content the content
+     * @return whether the file was written
+     */
+    boolean write(File file, byte[] content) {
+        files.put(file.getAbsolutePath(), owner);
+        long start = System.nanoTime();
+        try {
+            Path path = file.toPath();
+            if (isSameContent(path, content) || (retainedFiles != null && retainedFiles.restore(file, content))) {
+                skipped++;
+                return false;
+            }
+            if (retainedFiles != null) {
+                retainedFiles.retain(file);
+            }
+            Files.createDirectories(path.getParent());
+            Files.write(path, content);
+            written++;
+            bytesWritten += content.length;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Moves the file to the destination unless the destination already has the
+     * file's content, in which case the file is deleted.
+     * 
+     * @param file        the file
+     * @param destination the destination
+     */
+    void move(File file, File destination) {
+        Owner fileOwner = files.remove(file.getAbsolutePath());
+        files.put(destination.getAbsolutePath(), fileOwner != null ? fileOwner : owner);
+        long start = System.nanoTime();
+        try {
+            Path path = file.toPath();
+            Path destinationPath = destination.toPath();
+            byte[] content = Files.readAllBytes(path);
+            if (isSameContent(destinationPath, content)
+                    || (retainedFiles != null && retainedFiles.restore(destination, content))) {
+                Files.delete(path);
+                skipped++;
+            } else {
+                if (retainedFiles != null) {
+                    retainedFiles.retain(destination);
+                }
+                Files.createDirectories(destinationPath.getParent());
+                Files.move(path, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+                written++;
+                bytesWritten += content.length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Records that the file was generated without writing it.
+     * 
+     * @param file the file
+     */
+    void add(File file) {
+        files.putIfAbsent(file.getAbsolutePath(), owner);
+    }
+
+    /**
+     * Records that the file was deleted.
+     * 
+     * @param file the file
+     */
+    void remove(File file) {
+        files.remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Returns the paths and owners of the generated files recorded since the
+     * last call and forgets them.
+     * 
+     * @return the owners of the generated files, keyed by their paths
+     */
+    Map<String, Owner> drain() {
+        Map<String, Owner> drained = new LinkedHashMap<>(files);
+        files.clear();
+        return drained;
+    }
+
+    /**
+     * Returns the paths of the generated files recorded since the last call of
+     * {@link #drain()}.
+     * 
+     * @return the paths of the generated files
+     */
+    List<String> getPaths() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    /**
+     * Restores the files which were generated again with the content of their
+     * {@link #setRetainedFiles(RetainedFiles) retained versions} and deletes the
+     * retained files. The retained files which were not generated again are
+     * counted as deleted files.
+     */
+    void restoreRetained() {
+        if (retainedFiles == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        deleted += retainedFiles.restoreAll();
+        writeNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Deletes a stale file, together with its parent directories which become
+     * empty, up to the root directory.
+     * 
+     * @param file the file
+     * @param root the directory containing the file
+     */
+    void delete(File file, File root) {
+        try {
+            if (!Files.deleteIfExists(file.toPath())) {
+                return;
+            }
+            deleted++;
+            Path rootPath = root.toPath();
+            Path dir = file.toPath().getParent();
+            while (dir != null && !dir.equals(rootPath) && dir.startsWith(rootPath)) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    if (entries.iterator().hasNext()) {
+                        break;
+                    }
+                }
+                Files.delete(dir);
+                dir = dir.getParent();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int getWritten() {
+        return written;
+    }
+
+    int getSkipped() {
+        return skipped;
+    }
+
+    int getDeleted() {
+        return deleted;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the time spent comparing, writing and moving files.
+     * 
+     * @return the time in nanoseconds
+     */
+    long getWriteNanos() {
+        return writeNanos;
+    }
+
+    private static boolean isSameContent(Path file, byte[] content) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != content.length) {
+            return false;
+        }
+        return Arrays.equals(Files.readAllBytes(file), content);
+    }
+
+    /**
+     * The language and fragment which generated a file.
+     */
+    static final class Owner implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String language;
+        private final String fragment;
+
+        Owner(String language, String fragment) {
+            this.language = language;
+            this.fragment = fragment;
+        }
+
+        /**
+         * Returns the grammar name of the language which generated the file.
+         * 
+         * @return the grammar name, or {@code null} for the common infrastructure
+         */
+        String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Returns the name of the fragment which generated the file.
+         * 
+         * @return the fragment name, or {@code null} for the generator itself
+         */
+        String getFragment() {
+            return fragment;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * The index of the files produced by a generation with a
+ * {@link GradleXtextProjectConfig}: the language, fragment and sub-project
+ * owning each file and the hash of its content.
+ *
+ * <p>
+ * The index of the previous generation determines which files are stale: the
+ * files it lists which are no longer produced are deleted, unless they were
+ * changed since they were generated. Other files in the generated directories
+ * are kept. The owners are stored in a string table, so that the index stays
+ * compact for large languages.
+ * </p>
+ */
+final class GenerationIndex {
+
+    private static final Logger LOGGER = Logging.getLogger(GenerationIndex.class);
+    private static final int FORMAT = 1;
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private GenerationIndex() {
+    }
+
+    /**
+     * Creates the index of the files produced by a generation. Files which do
+     * not exist are left out.
+     *
+     * @param files         the owners of the generated files, keyed by their
+     *                      paths
+     * @param projectConfig the project config of the generation
+     * @return the index
+     */
+    static GenerationIndex of(Map<String, GeneratedFiles.Owner> files, GradleXtextProjectConfig projectConfig) {
+        Map<String, String> subProjects = subProjectDirectories(projectConfig);
+        GenerationIndex index = new GenerationIndex();
+        for (Map.Entry<String, GeneratedFiles.Owner> file : files.entrySet()) {
+            File generated = new File(file.getKey());
+            if (!generated.isFile()) {
+                continue;
+            }
+            byte[] hash;
+            try {
+                hash = hash(Files.readAllBytes(generated.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            GeneratedFiles.Owner owner = file.getValue();
+            index.entries.put(file.getKey(), new Entry(owner.getLanguage(), owner.getFragment(),
+                    subProject(subProjects, file.getKey()), hash));
+        }
+        return index;
+    }
+
+    /**
+     * Reads the index of a previous generation.
+     *
+     * @param file the index file
+     * @return the index, or {@code null} if the file does not exist or cannot be
+     *         read
+     */
+    static GenerationIndex read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        GenerationIndex index = new GenerationIndex();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            if (in.readInt() != FORMAT) {
+                LOGGER.info("Ignoring the generation index {} of another plugin version", file);
+                return null;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String path = in.readUTF();
+                String language = string(strings, in.readInt());
+                String fragment = string(strings, in.readInt());
+                String subProject = string(strings, in.readInt());
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                index.entries.put(path, new Entry(language, fragment, subProject, hash));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Ignoring the unreadable generation index {}", file, e);
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param file the index file
+     */
+    void write(File file) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            for (String string : Arrays.asList(entry.language, entry.fragment, entry.subProject)) {
+                if (string != null) {
+                    strings.putIfAbsent(string, strings.size());
+                }
+            }
+        }
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+                out.writeInt(FORMAT);
+                out.writeInt(strings.size());
+                for (String string : strings.keySet()) {
+                    out.writeUTF(string);
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    Entry value = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(value.language == null ? -1 : strings.get(value.language));
+                    out.writeInt(value.fragment == null ? -1 : strings.get(value.fragment));
+                    out.writeInt(value.subProject == null ? -1 : strings.get(value.subProject));
+                    out.writeByte(value.hash.length);
+                    out.write(value.hash);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the files of this index which are no longer produced according to
+     * the index of the current generation. Only files in the given directories
+     * are deleted, and files whose content changed since they were generated are
+     * kept.
+     *
+     * @param current        the index of the current generation
+     * @param directories    the directories stale files are deleted from
+     * @param generatedFiles the generated files of the current generation,
+     *                       which count the deleted files
+     */
+    void deleteStale(GenerationIndex current, Collection<File> directories, GeneratedFiles generatedFiles) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (current.entries.containsKey(entry.getKey())) {
+                continue;
+            }
+            File file = new File(entry.getKey());
+            File root = root(directories, file);
+            if (root == null || !file.isFile()) {
+                continue;
+            }
+            Entry stale = entry.getValue();
+            try {
+                if (!Arrays.equals(stale.hash, hash(Files.readAllBytes(file.toPath())))) {
+                    LOGGER.warn("Keeping {}, which is no longer generated but was changed since {} generated it",
+                            file, stale.describeOwner());
+                    continue;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            LOGGER.info("Deleting {}, which {} no longer generates", file, stale.describeOwner());
+            generatedFiles.delete(file, root);
+        }
+    }
+
+    /**
+     * Retains the files of this index which a language generated into the given
+     * directories, so that the language's generation replaces them and the
+     * files it no longer generates are deleted without walking the directories.
+     * Files whose content changed since they were generated are left in place.
+     *
+     * @param language      the name of the language
+     * @param directories   the directories the files are retained from
+     * @param retainedFiles the retained files
+     */
+    void retain(String language, Collection<File> directories, RetainedFiles retainedFiles) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry generated = entry.getValue();
+            File file = new File(entry.getKey());
+            if (!language.equals(generated.language) || root(directories, file) == null || !file.isFile()) {
+                continue;
+            }
+            try {
+                if (Arrays.equals(generated.hash, hash(Files.readAllBytes(file.toPath())))) {
+                    retainedFiles.retain(file);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static File root(Collection<File> directories, File file) {
+        for (File directory : directories) {
+            if (file.toPath().startsWith(directory.getAbsoluteFile().toPath())) {
+                return directory.getAbsoluteFile();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the names of the enabled sub-projects keyed by the directories they
+     * generate into.
+     */
+    private static Map<String, String> subProjectDirectories(GradleXtextProjectConfig projectConfig) {
+        Map<String, String> directories = new LinkedHashMap<>();
+        for (SubProjectConfig project : projectConfig.getEnabledProjects()) {
+            List<String> paths = new ArrayList<>(Arrays.asList(project.getRootPath(), project.getSrcGenPath(),
+                    projectConfig.getResourcesGenPaths().get(project.getSrcGenPath())));
+            if (project == projectConfig.getRuntime()) {
+                paths.add(projectConfig.getRuntime().getEcoreModelPath());
+            }
+            for (String path : paths) {
+                if (path != null) {
+                    directories.put(new File(path).getAbsolutePath(), project.getName());
+                }
+            }
+        }
+        return directories;
+    }
+
+    private static String subProject(Map<String, String> subProjectDirectories, String path) {
+        // the longest directory wins, since the generated directories may be inside the project roots
+        String longest = null;
+        for (String directory : subProjectDirectories.keySet()) {
+            if (path.startsWith(directory + File.separator)
+                    && (longest == null || directory.length() > longest.length())) {
+                longest = directory;
+            }
+        }
+        return longest == null ? null : subProjectDirectories.get(longest);
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String language;
+        private final String fragment;
+        private final String subProject;
+        private final byte[] hash;
+
+        Entry(String language, String fragment, String subProject, byte[] hash) {
+            this.language = language;
+            this.fragment = fragment;
+            this.subProject = subProject;
+            this.hash = hash;
+        }
+
+        String describeOwner() {
+            String owner = language == null ? "the common infrastructure"
+                    : fragment == null ? language : fragment + " of " + language;
+            return subProject == null ? owner : owner + " in " + subProject;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * The time spent in each phase of a generation, in each language and in each
+ * of the languages' fragments, together with the size of the languages'
+ * generated parsers, the number of files and bytes written and the peak heap
+ * usage.
+ *
+ * <p>
+ * When the generation is split across workers, each worker records its own
+ * metrics, which are {@link #write(File) written} to a file and
+ * {@link #merge(GenerationMetrics) merged} into a single report.
+ * </p>
+ */
+final class GenerationMetrics implements Serializable {
+
+    static final String INITIALIZE = "initialize";
+    static final String CREATE_INJECTOR = "createInjector";
+    static final String CLEAN = "clean";
+    static final String GENERATE_LANGUAGES = "generateLanguages";
+    static final String GENERATE_INFRASTRUCTURE = "generateInfrastructure";
+    static final String DELETE_STALE_FILES = "deleteStaleFiles";
+    static final String WRITE_FILES = "writeFiles";
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, LanguageMetrics> languages = new LinkedHashMap<>();
+    private int filesWritten;
+    private int filesSkipped;
+    private int filesDeleted;
+    private long bytesWritten;
+    private long peakHeap;
+
+    /**
+     * Resets the peak heap usage of the JVM, so that {@link #recordPeakHeap()}
+     * returns the peak during the generation.
+     */
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Records the peak heap usage of the JVM since the last
+     * {@link #resetPeakHeap()}.
+     */
+    void recordPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP && pool.isValid() ? pool.getPeakUsage() : null;
+            if (usage != null) {
+                peak += usage.getUsed();
+            }
+        }
+        peakHeap = Math.max(peakHeap, peak);
+    }
+
+    /**
+     * Adds the time spent in a phase.
+     *
+     * @param phase the phase
+     * @param nanos the time in nanoseconds
+     */
+    void addPhase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Returns the metrics of a language, creating them if necessary.
+     *
+     * @param grammarName the name of the language's grammar
+     * @return the metrics of the language
+     */
+    LanguageMetrics language(String grammarName) {
+        return languages.computeIfAbsent(grammarName, __ -> new LanguageMetrics());
+    }
+
+    /**
+     * Records the files handled by the generator's file system accesses.
+     *
+     * @param generatedFiles the generated files
+     */
+    void addFiles(GeneratedFiles generatedFiles) {
+        filesWritten += generatedFiles.getWritten();
+        filesSkipped += generatedFiles.getSkipped();
+        filesDeleted += generatedFiles.getDeleted();
+        bytesWritten += generatedFiles.getBytesWritten();
+        addPhase(WRITE_FILES, generatedFiles.getWriteNanos());
+    }
+
+    /**
+     * Adds the metrics recorded by another worker of the same generation.
+     *
+     * @param other the metrics of the other worker
+     */
+    void merge(GenerationMetrics other) {
+        other.phases.forEach(this::addPhase);
+        other.languages.forEach((name, language) -> language(name).merge(language));
+        filesWritten += other.filesWritten;
+        filesSkipped += other.filesSkipped;
+        filesDeleted += other.filesDeleted;
+        bytesWritten += other.bytesWritten;
+        peakHeap = Math.max(peakHeap, other.peakHeap);
+    }
+
+    /**
+     * Logs the metrics at info level.
+     *
+     * @param logger the logger
+     */
+    void log(Logger logger) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        phases.forEach((phase, nanos) -> logger.info("Xtext generation phase {} took {} ms", phase, millis(nanos)));
+        languages.forEach((name, language) -> {
+            logger.info("Generating {} took {} ms (initialization {} ms)", name, millis(language.generate),
+                    millis(language.initialize));
+            List<Map.Entry<String, Long>> fragments = new ArrayList<>(language.fragments.entrySet());
+            fragments.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            for (Map.Entry<String, Long> fragment : fragments) {
+                logger.info("  {} took {} ms", fragment.getKey(), millis(fragment.getValue()));
+            }
+            if (language.parserFiles > 0) {
+                logger.info("  The generated parser has {} Java files with {} bytes; the largest has {} bytes",
+                        language.parserFiles, language.parserBytes, language.largestParserFile);
+            }
+        });
+        logger.info("Wrote {} files ({} bytes), skipped {} unchanged files and deleted {} stale files; peak heap {} MB",
+                filesWritten, bytesWritten, filesSkipped, filesDeleted, peakHeap / (1024 * 1024));
+    }
+
+    /**
+     * Writes the metrics as a JSON report.
+     *
+     * @param file the report file
+     */
+    void writeReport(File file) {
+        StringBuilder json = new StringBuilder("{\n  \"phasesMillis\": {");
+        appendTimes(json, phases, "    ");
+        json.append("},\n  \"languages\": [");
+        String separator = "\n";
+        for (Map.Entry<String, LanguageMetrics> language : languages.entrySet()) {
+            LanguageMetrics metrics = language.getValue();
+            json.append(separator).append("    {\n      \"name\": ");
+            appendString(json, language.getKey());
+            json.append(",\n      \"initializeMillis\": ").append(millis(metrics.initialize));
+            json.append(",\n      \"generateMillis\": ").append(millis(metrics.generate));
+            json.append(",\n      \"fragmentsMillis\": {");
+            appendTimes(json, metrics.fragments, "        ");
+            json.append('}');
+            if (metrics.parserFiles > 0) {
+                json.append(",\n      \"parser\": {\n");
+                json.append("        \"javaFiles\": ").append(metrics.parserFiles).append(",\n");
+                json.append("        \"bytes\": ").append(metrics.parserBytes).append(",\n");
+                json.append("        \"largestFileBytes\": ").append(metrics.largestParserFile).append("\n      }");
+            }
+            json.append("\n    }");
+            separator = ",\n";
+        }
+        json.append(languages.isEmpty() ? "" : "\n  ").append("],\n  \"files\": {\n");
+        json.append("    \"written\": ").append(filesWritten).append(",\n");
+        json.append("    \"skipped\": ").append(filesSkipped).append(",\n");
+        json.append("    \"deleted\": ").append(filesDeleted).append(",\n");
+        json.append("    \"bytesWritten\": ").append(bytesWritten).append("\n  },\n");
+        json.append("  \"peakHeapBytes\": ").append(peakHeap).append("\n}\n");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendTimes(StringBuilder json, Map<String, Long> times, String indent) {
+        String separator = "\n";
+        for (Map.Entry<String, Long> time : times.entrySet()) {
+            json.append(separator).append(indent);
+            appendString(json, time.getKey());
+            json.append(": ").append(millis(time.getValue()));
+            separator = ",\n";
+        }
+        if (!times.isEmpty()) {
+            json.append('\n').append(indent, 0, indent.length() - 2);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000d);
+    }
+
+    /**
+     * Writes the metrics so that they can be {@link #read(File) read} by the
+     * worker generating the common infrastructure.
+     *
+     * @param file the file
+     */
+    void write(File file) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
+                out.writeObject(this);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static GenerationMetrics read(File file) {
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file.toPath()))) {
+            return (GenerationMetrics) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new GradleException("Cannot read generation metrics " + file, e);
+        }
+    }
+
+    /**
+     * The time spent initializing a language, which includes loading its
+     * grammar, and generating it, in total and per fragment, and the size of the
+     * Java files of its generated parsers.
+     */
+    static final class LanguageMetrics implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private long initialize;
+        private long generate;
+        private final Map<String, Long> fragments = new LinkedHashMap<>();
+        private int parserFiles;
+        private long parserBytes;
+        private long largestParserFile;
+
+        void addInitialize(long nanos) {
+            initialize += nanos;
+        }
+
+        void addGenerate(long nanos) {
+            generate += nanos;
+        }
+
+        void addFragment(String fragment, long nanos) {
+            fragments.merge(fragment, nanos, Long::sum);
+        }
+
+        void addParserFile(long bytes) {
+            parserFiles++;
+            parserBytes += bytes;
+            largestParserFile = Math.max(largestParserFile, bytes);
+        }
+
+        private void merge(LanguageMetrics other) {
+            initialize += other.initialize;
+            generate += other.generate;
+            other.fragments.forEach(this::addFragment);
+            parserFiles += other.parserFiles;
+            parserBytes += other.parserBytes;
+            largestParserFile = Math.max(largestParserFile, other.largestParserFile);
+        }
+    }
+}
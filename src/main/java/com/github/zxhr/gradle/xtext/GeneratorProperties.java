@@ -0,0 +1,253 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.eclipse.xtext.xtext.generator.CodeConfig;
+import org.eclipse.xtext.xtext.generator.IXtextGeneratorFragment;
+import org.eclipse.xtext.xtext.generator.StandardLanguage;
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.eclipse.xtext.xtext.generator.model.ManifestAccess;
+import org.eclipse.xtext.xtext.generator.model.PluginXmlAccess;
+import org.eclipse.xtext.xtext.generator.model.annotations.IClassAnnotation;
+import org.eclipse.xtext.xtext.generator.model.project.BundleProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.RuntimeProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.WebProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AntlrOptions;
+import org.gradle.api.GradleException;
+
+/**
+ * The declared configuration of an {@link XtextGenerator} which is tracked as
+ * an input of the {@link GenerateMwe2} task: the code config, the sub-project
+ * configs, the names, grammar URIs and file extensions of the languages and
+ * the configuration of their fragments.
+ * Paths and file URIs below the base directory are made relative to it, so
+ * that the properties do not depend on the location of the build.
+ */
+final class GeneratorProperties {
+
+    private static final String GENERATOR_PACKAGE = "org.eclipse.xtext.xtext.generator.";
+
+    private final String basePath;
+    private final String baseUri;
+    private final Map<String, String> properties = new TreeMap<>();
+
+    private GeneratorProperties(File baseDirectory) {
+        File base = baseDirectory.getAbsoluteFile();
+        this.basePath = base.getPath();
+        String uri = base.toURI().toString();
+        this.baseUri = uri.endsWith("/") ? uri : uri + '/';
+    }
+
+    /**
+     * Returns the declared configuration of the generator.
+     *
+     * @param generator     the generator
+     * @param baseDirectory the directory paths are made relative to
+     * @return the properties of the generator keyed by their names
+     */
+    static Map<String, String> of(XtextGenerator generator, File baseDirectory) {
+        GeneratorProperties properties = new GeneratorProperties(baseDirectory);
+        properties.addCode(generator.getConfiguration().getCode());
+        properties.addProject(generator.getConfiguration().getProject());
+        List<XtextGeneratorLanguage> languages = generator.getLanguageConfigs();
+        for (int i = 0; i < languages.size(); i++) {
+            properties.addLanguage("language." + i, languages.get(i));
+        }
+        return properties.properties;
+    }
+
+    private void addCode(CodeConfig code) {
+        put("code.encoding", code.getEncoding());
+        put("code.lineDelimiter", code.getLineDelimiter());
+        put("code.fileHeader", code.getFileHeader());
+        put("code.preferXtendStubs", code.isPreferXtendStubs());
+        List<IClassAnnotation> classAnnotations = code.getClassAnnotations();
+        for (int i = 0; i < classAnnotations.size(); i++) {
+            put("code.classAnnotation." + i, classAnnotations.get(i).getClass().getName());
+        }
+    }
+
+    private void addProject(XtextProjectConfig project) {
+        put("project.type", project.getClass().getName());
+        addSubProject("runtime", project.getRuntime());
+        addSubProject("runtimeTest", project.getRuntimeTest());
+        addSubProject("genericIde", project.getGenericIde());
+        addSubProject("eclipsePlugin", project.getEclipsePlugin());
+        addSubProject("eclipsePluginTest", project.getEclipsePluginTest());
+        addSubProject("web", project.getWeb());
+        if (project instanceof GradleXtextProjectConfig) {
+            GradleXtextProjectConfig gradleProject = (GradleXtextProjectConfig) project;
+            gradleProject.getResourcesGenPaths().forEach((srcGen, resourcesGen) -> {
+                put("project.resourcesGen." + path(srcGen), path(resourcesGen));
+            });
+            put("project.binaryEcoreModels", gradleProject.isBinaryEcoreModels());
+        }
+    }
+
+    private void addSubProject(String role, SubProjectConfig project) {
+        if (project == null || !project.isEnabled()) {
+            return;
+        }
+        String prefix = role + '.';
+        put(prefix + "name", project.getName());
+        put(prefix + "overwriteSrc", project.isOverwriteSrc());
+        put(prefix + "root", path(project.getRootPath()));
+        put(prefix + "src", path(project.getSrcPath()));
+        put(prefix + "srcGen", path(project.getSrcGenPath()));
+        put(prefix + "metaInf", path(project.getMetaInfPath()));
+        put(prefix + "icons", path(project.getIconsPath()));
+        if (project instanceof BundleProjectConfig) {
+            ManifestAccess manifest = ((BundleProjectConfig) project).getManifest();
+            if (manifest != null) {
+                put(prefix + "manifest.path", manifest.getPath());
+                put(prefix + "manifest.bundleName", manifest.getBundleName());
+                put(prefix + "manifest.symbolicName", manifest.getSymbolicName());
+                put(prefix + "manifest.version", manifest.getVersion());
+                put(prefix + "manifest.merge", manifest.isMerge());
+            }
+            PluginXmlAccess pluginXml = ((BundleProjectConfig) project).getPluginXml();
+            if (pluginXml != null) {
+                put(prefix + "pluginXml.path", pluginXml.getPath());
+            }
+        }
+        if (project instanceof RuntimeProjectConfig) {
+            put(prefix + "ecoreModel", path(((RuntimeProjectConfig) project).getEcoreModelPath()));
+        }
+        if (project instanceof WebProjectConfig) {
+            put(prefix + "assets", path(((WebProjectConfig) project).getAssetsPath()));
+        }
+    }
+
+    private void addLanguage(String prefix, XtextGeneratorLanguage language) {
+        put(prefix + ".type", language.getClass().getName());
+        put(prefix + ".grammarUri", path(language.getGrammarUri()));
+        List<String> fileExtensions = ifSet(language::getFileExtensions);
+        if (fileExtensions != null) {
+            put(prefix + ".fileExtensions", String.join(",", fileExtensions));
+        }
+        put(prefix + ".referencedResources", path(String.join(",", language.getReferencedResources())));
+        addFragment(prefix + '.', language, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Adds the class and the configured values of a fragment. MWE2 configures
+     * fragments through setters and adders, most of which have no getter, so the
+     * values are read from the fields of the fragment's classes. Fields injected
+     * by the generator and the fields of {@link XtextGeneratorLanguage}, which are
+     * tracked separately or derived from the grammar, are skipped. Nested
+     * fragments, such as the implicit fragments of a {@link StandardLanguage} or
+     * the fragments of a composite fragment, and the option objects of the
+     * generator, such as {@link AntlrOptions}, are added recursively; of other
+     * objects only the class is tracked.
+     */
+    private void addFragment(String prefix, Object fragment, Set<Object> visited) {
+        if (!visited.add(fragment)) {
+            return;
+        }
+        put(prefix + "type", fragment.getClass().getName());
+        for (Class<?> type = fragment.getClass(); type != Object.class; type = type.getSuperclass()) {
+            if (type == XtextGeneratorLanguage.class) {
+                continue;
+            }
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || field.isAnnotationPresent(com.google.inject.Inject.class)
+                        || field.isAnnotationPresent(javax.inject.Inject.class)) {
+                    continue;
+                }
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(fragment);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    throw new GradleException("Cannot read " + type.getName() + '.' + field.getName(), e);
+                }
+                addValue(prefix + field.getName(), value, visited);
+            }
+        }
+    }
+
+    private void addValue(String name, Object value, Set<Object> visited) {
+        if (value == null) {
+            return;
+        }
+        if (isSimple(value)) {
+            put(name, path(value.toString()));
+        } else if (value instanceof Collection || value.getClass().isArray()) {
+            List<Object> elements = new ArrayList<>();
+            if (value instanceof Collection) {
+                elements.addAll((Collection<?>) value);
+            } else {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    elements.add(Array.get(value, i));
+                }
+            }
+            if (value instanceof Set && elements.stream().allMatch(element -> element != null && isSimple(element))) {
+                // the iteration order of a set of values is not significant
+                elements.sort(Comparator.comparing(Object::toString));
+            }
+            for (int i = 0; i < elements.size(); i++) {
+                addValue(name + '.' + i, elements.get(i), visited);
+            }
+            put(name + ".size", elements.size());
+        } else if (value instanceof IXtextGeneratorFragment
+                || value.getClass().getName().startsWith(GENERATOR_PACKAGE)) {
+            addFragment(name + '.', value, visited);
+        } else {
+            put(name + ".type", value.getClass().getName());
+        }
+    }
+
+    private static boolean isSimple(Object value) {
+        return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum;
+    }
+
+    /**
+     * Returns the value of a getter of a language which is not initialized yet,
+     * or {@code null} if the value is not set. Such getters fail when they derive
+     * their default from the grammar, which is only loaded by the
+     * initialization; the default is tracked through the grammar file instead.
+     */
+    private static <T> T ifSet(Supplier<T> getter) {
+        try {
+            return getter.get();
+        } catch (NullPointerException e) {
+            return null;
+        }
+    }
+
+    private void put(String name, Object value) {
+        if (value != null) {
+            properties.put(name, value.toString());
+        }
+    }
+
+    private String path(String value) {
+        if (value == null) {
+            return null;
+        }
+        String path = value.replace(baseUri, "$baseUri/");
+        if (path.equals(basePath) || path.startsWith(basePath + File.separator)) {
+            path = "$base" + path.substring(basePath.length()).replace(File.separatorChar, '/');
+        }
+        return path;
+    }
+}
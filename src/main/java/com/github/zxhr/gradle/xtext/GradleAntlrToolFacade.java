@@ -0,0 +1,100 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.xtext.xtext.generator.parser.antlr.AntlrToolFacade;
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * An {@link AntlrToolFacade} which runs the ANTLR tool into a temporary
+ * directory and writes the files it generates to the output directory through
+ * the {@link GeneratedFiles} of a {@link GradleXtextProjectConfig}. The files
+ * are recorded as generated by the running fragment and are only written when
+ * their content changes, like the files of the generator's file system
+ * accesses.
+ */
+class GradleAntlrToolFacade extends AntlrToolFacade {
+
+    private static final String OUTPUT_DIRECTORY_OPTION = "-fo";
+
+    private final GradleXtextProjectConfig projectConfig;
+
+    /**
+     * Creates a facade writing the tool's output through the generated files of
+     * the project config.
+     *
+     * @param projectConfig the project config
+     */
+    GradleAntlrToolFacade(GradleXtextProjectConfig projectConfig) {
+        this.projectConfig = projectConfig;
+    }
+
+    @Override
+    public void runWithEncodingAndParams(String grammarFullPath, String explicitEncoding, String... furtherArgs) {
+        int outputDirectoryIndex = -1;
+        for (int i = 0; i < furtherArgs.length - 1; i++) {
+            if (OUTPUT_DIRECTORY_OPTION.equals(furtherArgs[i])) {
+                outputDirectoryIndex = i + 1;
+            }
+        }
+        if (outputDirectoryIndex < 0) {
+            // the fragments always pass the output directory
+            super.runWithEncodingAndParams(grammarFullPath, explicitEncoding, furtherArgs);
+            return;
+        }
+        File outputDirectory = new File(furtherArgs[outputDirectoryIndex]).getAbsoluteFile();
+        Map<String, byte[]> outputs = generate(new File(grammarFullPath).getAbsoluteFile(), explicitEncoding,
+                furtherArgs, outputDirectoryIndex, outputDirectory);
+        GeneratedFiles generatedFiles = projectConfig.getGeneratedFiles();
+        for (Map.Entry<String, byte[]> output : outputs.entrySet()) {
+            generatedFiles.write(new File(outputDirectory, output.getKey()), output.getValue());
+        }
+    }
+
+    /**
+     * Returns the files the tool generates for a grammar, keyed by their names.
+     *
+     * @param grammar              the grammar file
+     * @param encoding             the encoding of the grammar
+     * @param args                 the options of the tool
+     * @param outputDirectoryIndex the index of the output directory in the
+     *                             options
+     * @param outputDirectory      the output directory
+     * @return the contents of the generated files keyed by their names
+     */
+    Map<String, byte[]> generate(File grammar, String encoding, String[] args, int outputDirectoryIndex,
+            File outputDirectory) {
+        Map<String, byte[]> outputs = new LinkedHashMap<>();
+        try {
+            File temporaryDirectory = Files.createTempDirectory("antlr").toFile();
+            try {
+                String[] redirectedArgs = args.clone();
+                redirectedArgs[outputDirectoryIndex] = temporaryDirectory.getPath();
+                super.runWithEncodingAndParams(grammar.getPath(), encoding, redirectedArgs);
+                File[] files = temporaryDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.isFile()) {
+                            outputs.put(file.getName(), Files.readAllBytes(file.toPath()));
+                        }
+                    }
+                }
+            } finally {
+                File[] files = temporaryDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        Files.deleteIfExists(file.toPath());
+                    }
+                }
+                Files.deleteIfExists(temporaryDirectory.toPath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputs;
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.xtext.generator.OutputConfiguration;
+import org.eclipse.xtext.util.RuntimeIOException;
+import org.eclipse.xtext.xtext.generator.model.XtextGeneratorFileSystemAccess;
+
+/**
+ * An {@link XtextGeneratorFileSystemAccess} which only writes files whose
+ * content changes and optionally writes the files which are not Java or Xtend
+ * sources to a separate resource directory.
+ */
+class GradleFileSystemAccess extends XtextGeneratorFileSystemAccess {
+
+    private final String resourcesGenPath;
+    private final GeneratedFiles generatedFiles;
+    private final Set<String> grammarFiles = new LinkedHashSet<>();
+    private IFileCallback callBack;
+
+    /**
+     * @param path             the output directory
+     * @param resourcesGenPath the output directory for files which are not Java
+     *                         or Xtend sources, or {@code null} to write them to
+     *                         the output directory
+     * @param overwrite        whether existing files are overwritten
+     * @param generatedFiles   the files written during the generation
+     */
+    GradleFileSystemAccess(String path, String resourcesGenPath, boolean overwrite, GeneratedFiles generatedFiles) {
+        super(path, overwrite);
+        this.resourcesGenPath = resourcesGenPath;
+        this.generatedFiles = generatedFiles;
+    }
+
+    @Override
+    public void setCallBack(IFileCallback callBack) {
+        super.setCallBack(callBack);
+        this.callBack = callBack;
+    }
+
+    @Override
+    public void generateFile(String fileName, String outputConfigName, CharSequence contents) {
+        File file = getFile(fileName, outputConfigName);
+        if (!getOutputConfig(outputConfigName).isOverrideExistingResources() && file.exists()) {
+            generatedFiles.add(file);
+            return;
+        }
+        String encoding = getEncoding(getURI(fileName, outputConfigName));
+        byte[] bytes;
+        try {
+            bytes = postProcess(fileName, outputConfigName, contents, encoding).toString().getBytes(encoding);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+        if (generatedFiles.write(file, bytes) && callBack != null) {
+            callBack.fileAdded(file);
+        }
+        if (isWriteTrace()) {
+            generateTrace(fileName, outputConfigName, contents);
+        }
+    }
+
+    @Override
+    public void generateFile(String fileName, String outputCfgName, InputStream content) {
+        File file = getFile(fileName, outputCfgName);
+        if (!getOutputConfig(outputCfgName).isOverrideExistingResources() && file.exists()) {
+            generatedFiles.add(file);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = content) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+        if (generatedFiles.write(file, bytes.toByteArray()) && callBack != null) {
+            callBack.fileAdded(file);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Existing files are recorded as generated files, since the generator checks
+     * for files it merges with or does not overwrite.
+     * </p>
+     */
+    @Override
+    public boolean isFile(String path, String outputConfigurationName) {
+        boolean isFile = super.isFile(path, outputConfigurationName);
+        if (isFile) {
+            generatedFiles.add(getFile(path, outputConfigurationName));
+        }
+        return isFile;
+    }
+
+    @Override
+    public void deleteFile(String fileName, String outputConfiguration) {
+        super.deleteFile(fileName, outputConfiguration);
+        generatedFiles.remove(getFile(fileName, outputConfiguration));
+    }
+
+    @Override
+    protected File getFile(String fileName, String outputConfigName) {
+        if (isGrammarFile(fileName)) {
+            grammarFiles.add(fileName);
+        } else if (resourcesGenPath != null && !isSourceFile(fileName) && isDefaultOutput(outputConfigName)) {
+            return new File(toSystemFileName(resourcesGenPath + "/" + fileName)).getAbsoluteFile();
+        }
+        return super.getFile(fileName, outputConfigName);
+    }
+
+    private boolean isDefaultOutput(String outputConfigName) {
+        Map<String, OutputConfiguration> outputConfigurations = getOutputConfigurations();
+        return outputConfigurations.size() == 1 && outputConfigurations.containsKey(outputConfigName);
+    }
+
+    /**
+     * Moves the generated ANTLR grammars and the other generated files next to
+     * them which are not Java sources, such as the token files the ANTLR tool
+     * writes, to the resource directory, if it is set. They must remain in the
+     * output directory while the ANTLR tool runs.
+     */
+    void flush() {
+        Set<File> directories = new LinkedHashSet<>();
+        for (String fileName : grammarFiles) {
+            directories.add(new File(toSystemFileName(getPath() + "/" + fileName)).getAbsoluteFile().getParentFile());
+        }
+        grammarFiles.clear();
+        if (resourcesGenPath == null || directories.isEmpty()) {
+            return;
+        }
+        String outputPath = new File(getPath()).getAbsolutePath();
+        for (String path : generatedFiles.getPaths()) {
+            File file = new File(path);
+            if (!directories.contains(file.getParentFile()) || !file.isFile()) {
+                continue;
+            }
+            String fileName = path.substring(outputPath.length() + 1).replace(File.separatorChar, '/');
+            if (!isSourceFile(fileName)) {
+                generatedFiles.move(file,
+                        new File(toSystemFileName(resourcesGenPath + "/" + fileName)).getAbsoluteFile());
+            }
+        }
+    }
+
+    private static boolean isSourceFile(String fileName) {
+        String extension = extension(fileName);
+        return "java".equals(extension) || "xtend".equals(extension);
+    }
+
+    private static boolean isGrammarFile(String fileName) {
+        String extension = extension(fileName);
+        return "g".equals(extension) || "tokens".equals(extension);
+    }
+
+    private static String extension(String fileName) {
+        String lowerCase = fileName.toLowerCase();
+        return lowerCase.substring(lowerCase.lastIndexOf('.') + 1);
+    }
+}
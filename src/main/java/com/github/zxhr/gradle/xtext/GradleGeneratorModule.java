@@ -0,0 +1,19 @@
+package com.github.zxhr.gradle.xtext;
+
+import org.eclipse.xtext.xtext.generator.DefaultGeneratorModule;
+import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
+
+import com.google.inject.Binder;
+
+/**
+ * A {@link DefaultGeneratorModule} which binds the configured
+ * {@link XtextProjectConfig}, so that the sub-project configurations use it as
+ * their owner instead of a default instance.
+ */
+class GradleGeneratorModule extends DefaultGeneratorModule {
+
+    public void configureGradleProjectConfig(Binder binder) {
+        binder.bind(XtextProjectConfig.class).toInstance(getProject());
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.github.zxhr.gradle.xtext;
+
+import org.eclipse.xtext.xtext.generator.StandardLanguage;
+import org.eclipse.xtext.xtext.generator.parser.antlr.XtextAntlrGeneratorFragment2;
+
+/**
+ * A {@link StandardLanguage} which exposes its parser generator, so that the
+ * {@link XtextParserOptions parser options} of the language are set on it
+ * before the language adds it to its fragments during the initialization.
+ *
+ * <p>
+ * {@link XtextRootProjectExtension#language(String, Class, org.gradle.api.Action)}
+ * creates a language of this type when a {@link StandardLanguage} is requested.
+ * Custom languages extend this class instead of {@link StandardLanguage} to
+ * support parser options.
+ * </p>
+ */
+public class GradleStandardLanguage extends StandardLanguage {
+
+    @Override
+    public XtextAntlrGeneratorFragment2 getParserGenerator() {
+        return super.getParserGenerator();
+    }
+}
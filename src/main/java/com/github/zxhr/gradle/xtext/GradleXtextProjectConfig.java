@@ -0,0 +1,128 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.xtext.xtext.generator.model.XtextGeneratorFileSystemAccess;
+import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
+
+import com.google.inject.Injector;
+
+/**
+ * An {@link XtextProjectConfig} whose file system accesses only write files
+ * whose content changes, and which writes the generated files of its
+ * sub-projects' src-gen directories which are not Java or Xtend sources to
+ * separate resource directories.
+ */
+class GradleXtextProjectConfig extends XtextProjectConfig {
+
+    private final Map<String, String> resourcesGenPaths = new LinkedHashMap<>();
+    private boolean binaryEcoreModels;
+    private final transient List<GradleFileSystemAccess> fileSystemAccesses = new ArrayList<>();
+    private transient GeneratedFiles generatedFiles = new GeneratedFiles();
+
+    /**
+     * Sets the directory where the non-source files generated into the given
+     * src-gen directory are written to.
+     * 
+     * @param srcGenPath       the src-gen directory of a sub-project
+     * @param resourcesGenPath the directory for the generated resources
+     */
+    void setResourcesGenPath(String srcGenPath, String resourcesGenPath) {
+        resourcesGenPaths.put(srcGenPath, resourcesGenPath);
+    }
+
+    /**
+     * Returns the directories for the generated resources keyed by the src-gen
+     * directories.
+     * 
+     * @return the directories for the generated resources
+     */
+    Map<String, String> getResourcesGenPaths() {
+        return resourcesGenPaths;
+    }
+
+    /**
+     * Returns whether the generated ecore models are also written in EMF's
+     * binary resource format.
+     * 
+     * @return whether binary ecore models are written
+     */
+    boolean isBinaryEcoreModels() {
+        return binaryEcoreModels;
+    }
+
+    /**
+     * Sets whether the generated ecore models are also written in EMF's binary
+     * resource format, next to the XMI files.
+     * 
+     * @param binaryEcoreModels whether binary ecore models are written
+     */
+    void setBinaryEcoreModels(boolean binaryEcoreModels) {
+        this.binaryEcoreModels = binaryEcoreModels;
+    }
+
+    /**
+     * Returns the files written since the config was initialized.
+     * 
+     * @return the files written since the config was initialized
+     */
+    GeneratedFiles getGeneratedFiles() {
+        return generatedFiles;
+    }
+
+    /**
+     * Returns the directories which only contain generated files, i.e. the
+     * src-gen, resource and ecore model directories of the enabled sub-projects.
+     * 
+     * @return the directories which only contain generated files
+     */
+    Set<File> getGeneratedDirectories() {
+        Set<File> directories = new LinkedHashSet<>();
+        for (SubProjectConfig project : getEnabledProjects()) {
+            if (project.getSrcGenPath() != null) {
+                directories.add(new File(project.getSrcGenPath()));
+                String resourcesGenPath = resourcesGenPaths.get(project.getSrcGenPath());
+                if (resourcesGenPath != null) {
+                    directories.add(new File(resourcesGenPath));
+                }
+            }
+        }
+        if (getRuntime().isEnabled() && getRuntime().getEcoreModelPath() != null) {
+            directories.add(new File(getRuntime().getEcoreModelPath()));
+        }
+        return directories;
+    }
+
+    @Override
+    public void initialize(Injector injector) {
+        fileSystemAccesses.clear();
+        generatedFiles = new GeneratedFiles();
+        super.initialize(injector);
+    }
+
+    @Override
+    protected XtextGeneratorFileSystemAccess newFileSystemAccess(String path, boolean overWrite) {
+        GradleFileSystemAccess fileSystemAccess = new GradleFileSystemAccess(path, resourcesGenPaths.get(path),
+                overWrite, generatedFiles);
+        fileSystemAccesses.add(fileSystemAccess);
+        return fileSystemAccess;
+    }
+
+    /**
+     * Moves the generated ANTLR grammars and token files, which must remain in
+     * the src-gen directories while the ANTLR tool runs, to the resource
+     * directories.
+     */
+    void flush() {
+        for (GradleFileSystemAccess fileSystemAccess : fileSystemAccesses) {
+            fileSystemAccess.flush();
+        }
+    }
+}
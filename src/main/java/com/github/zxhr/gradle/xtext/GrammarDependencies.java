@@ -0,0 +1,302 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * The dependencies between the languages of a generator, derived from the
+ * headers of their grammar files.
+ *
+ * <p>
+ * A language depends on another language if its grammar inherits from the
+ * other grammar or imports a metamodel the other grammar generates. A language
+ * whose grammar cannot be read is assumed to depend on and be depended on by
+ * all other languages.
+ * </p>
+ */
+final class GrammarDependencies {
+
+    private static final Pattern GRAMMAR = Pattern
+            .compile("\\bgrammar\\s+([\\w.^]+)(?:\\s+with\\s+([\\w.^]+(?:\\s*,\\s*[\\w.^]+)*))?");
+    private static final Pattern GENERATE = Pattern.compile("\\bgenerate\\s+[\\w^]+\\s+\"([^\"]*)\"");
+    private static final Pattern IMPORT = Pattern.compile("\\bimport\\s+\"([^\"]*)\"");
+
+    private final List<String> names;
+    private final List<Set<Integer>> dependencies;
+
+    private GrammarDependencies(List<String> names, List<Set<Integer>> dependencies) {
+        this.names = names;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Computes the dependencies between the given languages.
+     *
+     * @param languages the languages
+     * @return the dependencies between the languages
+     */
+    static GrammarDependencies of(List<? extends XtextGeneratorLanguage> languages) {
+        List<File> grammars = new ArrayList<>(languages.size());
+        for (XtextGeneratorLanguage language : languages) {
+            grammars.add(grammarFile(language));
+        }
+        return ofGrammars(grammars);
+    }
+
+    /**
+     * Computes the dependencies between the given grammar files, where a
+     * {@code null} file denotes a grammar which cannot be read.
+     *
+     * @param grammars the grammar files
+     * @return the dependencies between the grammars
+     */
+    static GrammarDependencies ofGrammars(List<File> grammars) {
+        List<Header> headers = new ArrayList<>(grammars.size());
+        List<String> names = new ArrayList<>(grammars.size());
+        for (File grammar : grammars) {
+            Header header = grammar != null && grammar.isFile() ? Header.read(grammar) : null;
+            headers.add(header);
+            names.add(header == null ? null : header.name);
+        }
+        List<Set<Integer>> dependencies = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            Header header = headers.get(i);
+            Set<Integer> dependsOn = new TreeSet<>();
+            for (int j = 0; j < headers.size(); j++) {
+                Header other = headers.get(j);
+                if (i != j && (header == null || other == null || header.dependsOn(other))) {
+                    dependsOn.add(j);
+                }
+            }
+            dependencies.add(dependsOn);
+        }
+        return new GrammarDependencies(names, dependencies);
+    }
+
+    /**
+     * Returns the grammar names declared in the grammar files, where the name of
+     * a grammar which cannot be read is {@code null}.
+     *
+     * @return the grammar names
+     */
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Returns the grammar file of the language, or {@code null} if the grammar is
+     * not a local file or its location is relative, since a relative location
+     * depends on the working directory of the JVM running the generator.
+     *
+     * @param language the language
+     * @return the grammar file of the language
+     */
+    static File grammarFile(XtextGeneratorLanguage language) {
+        String grammarUri = language.getGrammarUri();
+        if (grammarUri == null) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = new URI(grammarUri);
+        } catch (URISyntaxException e) {
+            // not a URI, such as a Windows path
+            File file = new File(grammarUri);
+            return file.isAbsolute() ? file : null;
+        }
+        if (uri.getScheme() == null) {
+            File file = new File(uri.getPath());
+            return file.isAbsolute() ? file : null;
+        }
+        if ("file".equals(uri.getScheme())) {
+            try {
+                return new File(uri);
+            } catch (IllegalArgumentException e) {
+                // e.g. an opaque or relative file URI
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Groups the languages into levels which must be generated one after
+     * another. The units of a level only depend on units of previous levels and
+     * may be generated concurrently. Languages with cyclic dependencies are
+     * generated together in one unit of the last level.
+     *
+     * @return the levels of units of language indices
+     */
+    List<List<List<Integer>>> levels() {
+        List<List<List<Integer>>> levels = new ArrayList<>();
+        Set<Integer> done = new HashSet<>();
+        while (done.size() < dependencies.size()) {
+            List<List<Integer>> level = new ArrayList<>();
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (!done.contains(i) && done.containsAll(dependencies.get(i))) {
+                    level.add(Collections.singletonList(i));
+                }
+            }
+            if (level.isEmpty()) {
+                List<Integer> remaining = new ArrayList<>();
+                for (int i = 0; i < dependencies.size(); i++) {
+                    if (!done.contains(i)) {
+                        remaining.add(i);
+                    }
+                }
+                level.add(remaining);
+            }
+            for (List<Integer> unit : level) {
+                done.addAll(unit);
+            }
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    /**
+     * Splits the generated languages of a level into work items. Each unit of
+     * the level is one work item, unless there are more units than the maximum
+     * number of concurrently generated languages, in which case the units are
+     * spread evenly over that many work items.
+     *
+     * @param level              a level of units of language indices
+     * @param generatedLanguages the indices of the generated languages
+     * @param maxParallel        the maximum number of concurrent work items
+     * @return the work items of the level, each a set of language indices
+     */
+    static List<Collection<Integer>> workItems(List<List<Integer>> level, Set<Integer> generatedLanguages,
+            int maxParallel) {
+        List<List<Integer>> units = new ArrayList<>();
+        for (List<Integer> unit : level) {
+            List<Integer> generatedUnit = new ArrayList<>(unit);
+            generatedUnit.retainAll(generatedLanguages);
+            if (!generatedUnit.isEmpty()) {
+                units.add(generatedUnit);
+            }
+        }
+        int count = Math.min(units.size(), maxParallel);
+        List<Collection<Integer>> workItems = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            workItems.add(new TreeSet<>());
+        }
+        for (int i = 0; i < units.size(); i++) {
+            workItems.get(i % count).addAll(units.get(i));
+        }
+        return workItems;
+    }
+
+    /**
+     * Returns the given languages together with all languages which transitively
+     * depend on them.
+     *
+     * @param languages the language indices
+     * @return the language indices with their transitive dependents
+     */
+    Set<Integer> withDependents(Collection<Integer> languages) {
+        Set<Integer> result = new TreeSet<>(languages);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (!result.contains(i) && !Collections.disjoint(dependencies.get(i), result)) {
+                    changed |= result.add(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Header {
+
+        private final String name;
+        private final Set<String> superGrammars = new LinkedHashSet<>();
+        private final Set<String> generated = new LinkedHashSet<>();
+        private final Set<String> imported = new LinkedHashSet<>();
+
+        private Header(String name) {
+            this.name = name;
+        }
+
+        static Header read(File grammar) {
+            String text;
+            try {
+                text = stripComments(new String(Files.readAllBytes(grammar.toPath()), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Matcher grammarMatcher = GRAMMAR.matcher(text);
+            if (!grammarMatcher.find()) {
+                return null;
+            }
+            Header header = new Header(unescape(grammarMatcher.group(1)));
+            if (grammarMatcher.group(2) != null) {
+                for (String superGrammar : grammarMatcher.group(2).split(",")) {
+                    header.superGrammars.add(unescape(superGrammar.trim()));
+                }
+            }
+            Matcher generateMatcher = GENERATE.matcher(text);
+            while (generateMatcher.find()) {
+                header.generated.add(generateMatcher.group(1));
+            }
+            Matcher importMatcher = IMPORT.matcher(text);
+            while (importMatcher.find()) {
+                header.imported.add(importMatcher.group(1));
+            }
+            return header;
+        }
+
+        boolean dependsOn(Header other) {
+            return superGrammars.contains(other.name) || !Collections.disjoint(imported, other.generated);
+        }
+
+        private static String unescape(String name) {
+            return name.replace("^", "");
+        }
+
+        private static String stripComments(String text) {
+            StringBuilder result = new StringBuilder(text.length());
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\'') {
+                    int end = i + 1;
+                    while (end < text.length() && text.charAt(end) != c) {
+                        end += text.charAt(end) == '\\' ? 2 : 1;
+                    }
+                    end = Math.min(end + 1, text.length());
+                    result.append(text, i, end);
+                    i = end;
+                } else if (text.startsWith("//", i)) {
+                    int end = text.indexOf('\n', i);
+                    i = end < 0 ? text.length() : end;
+                } else if (text.startsWith("/*", i)) {
+                    int end = text.indexOf("*/", i + 2);
+                    i = end < 0 ? text.length() : end + 2;
+                    result.append(' ');
+                } else {
+                    result.append(c);
+                    i++;
+                }
+            }
+            return result.toString();
+        }
+    }
+}
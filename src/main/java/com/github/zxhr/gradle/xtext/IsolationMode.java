@@ -0,0 +1,30 @@
+package com.github.zxhr.gradle.xtext;
+
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * The isolation mode used by {@link GenerateMwe2} for running the Xtext
+ * generator.
+ */
+public enum IsolationMode {
+
+    /**
+     * Runs the Xtext generator directly in the Gradle daemon using the classpath
+     * of the build script.
+     */
+    NONE,
+
+    /**
+     * Runs the Xtext generator in the Gradle daemon with an
+     * {@link WorkerExecutor#classLoaderIsolation() isolated classloader} built
+     * from {@link GenerateMwe2#getGeneratorClasspath()}.
+     */
+    CLASSLOADER,
+
+    /**
+     * Runs the Xtext generator in a {@link WorkerExecutor#processIsolation()
+     * worker process} built from {@link GenerateMwe2#getGeneratorClasspath()}.
+     * Gradle keeps compatible worker processes alive between builds.
+     */
+    PROCESS
+}
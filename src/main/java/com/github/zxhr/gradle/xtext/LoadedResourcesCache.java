@@ -0,0 +1,135 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.xtext.resource.XtextResource;
+import org.eclipse.xtext.xtext.RuleNames;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Keeps the resources a language loaded from the classpath, such as inherited
+ * grammars like {@code Terminals} or {@code Xbase} and the models and genmodels
+ * they reference, so that the next generation of the language in the same JVM
+ * does not parse and link them again.
+ *
+ * <p>
+ * Only resources whose content cannot change while the classpath is unchanged
+ * are kept. The language's own grammar and all other files are loaded again by
+ * each generation. The resources are discarded when the Xtext version or the
+ * classpath changes, and only the resources of the
+ * {@value #MAX_LANGUAGES} most recently generated languages are kept, so that
+ * a long-lived JVM generating many languages does not accumulate them.
+ * </p>
+ */
+final class LoadedResourcesCache {
+
+    private static final Logger LOGGER = Logging.getLogger(LoadedResourcesCache.class);
+    private static final Set<String> REUSABLE_SCHEMES = new HashSet<>(Arrays.asList("classpath", "jar", "archive"));
+
+    /**
+     * The maximum number of languages whose resources are kept.
+     */
+    static final int MAX_LANGUAGES = 8;
+
+    private static String key;
+    private static final Map<String, ResourceSet> resources = new LinkedHashMap<String, ResourceSet>() {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ResourceSet> eldest) {
+            return size() > MAX_LANGUAGES;
+        }
+    };
+
+    private LoadedResourcesCache() {
+    }
+
+    /**
+     * Moves the resources kept for the language into the resource set the
+     * language's grammar is loaded into.
+     *
+     * @param grammarUri  the grammar URI of the language
+     * @param resourceSet the language's resource set
+     * @return whether resources were kept for the language
+     */
+    static synchronized boolean restore(String grammarUri, ResourceSet resourceSet) {
+        String currentKey = Mwe2InjectorCache.key();
+        if (!currentKey.equals(key)) {
+            resources.clear();
+            key = currentKey;
+        }
+        // removed, so that concurrent generations of the same language do not share the resources
+        ResourceSet kept = resources.remove(grammarUri);
+        if (kept == null) {
+            return false;
+        }
+        List<Resource> restored = new ArrayList<>(kept.getResources());
+        for (Resource resource : restored) {
+            if (resource instanceof XtextResource) {
+                ((XtextResource) resource).getCache().clear(resource);
+            }
+            // the rule names of the previous generation refer to the previous generation's grammars
+            for (Iterator<EObject> contents = resource.getAllContents(); contents.hasNext();) {
+                contents.next().eAdapters().removeIf(adapter -> adapter.isAdapterForType(RuleNames.class));
+            }
+        }
+        resourceSet.getResources().addAll(restored);
+        LOGGER.info("Reusing {} loaded resources for {}", restored.size(), grammarUri);
+        return true;
+    }
+
+    /**
+     * Keeps the resources of the language's resource set which were loaded from
+     * the classpath for the next generation of the language.
+     *
+     * @param grammarUri  the grammar URI of the language
+     * @param resourceSet the language's resource set
+     */
+    static synchronized void retain(String grammarUri, ResourceSet resourceSet) {
+        if (resourceSet == null || !Mwe2InjectorCache.key().equals(key)) {
+            return;
+        }
+        URIConverter uriConverter = resourceSet.getURIConverter();
+        List<Resource> reusable = new ArrayList<>();
+        for (Resource resource : resourceSet.getResources()) {
+            if (isReusable(resource, uriConverter)) {
+                reusable.add(resource);
+            }
+        }
+        // detached from the language's resource set, which holds the generated models
+        ResourceSet kept = new ResourceSetImpl();
+        kept.getResources().addAll(reusable);
+        resources.put(grammarUri, kept);
+    }
+
+    /**
+     * Returns whether a resource was loaded from the classpath without errors,
+     * so that its content cannot change while the classpath is unchanged.
+     *
+     * @param resource     the resource
+     * @param uriConverter the URI converter of the resource's resource set
+     * @return whether the resource can be reused
+     */
+    static boolean isReusable(Resource resource, URIConverter uriConverter) {
+        if (!resource.isLoaded() || !resource.getErrors().isEmpty()) {
+            return false;
+        }
+        URI uri = uriConverter.normalize(resource.getURI());
+        return uri != null && uri.scheme() != null && REUSABLE_SCHEMES.contains(uri.scheme());
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+
+/**
+ * The main attributes and sections of a {@code MANIFEST.MF} file, in the order
+ * they appear in the file.
+ */
+final class ManifestContents {
+
+    static final String MANIFEST_VERSION = "Manifest-Version";
+    private static final String NAME = "Name";
+    private static final int MAX_LINE_LENGTH = 72;
+
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> sections = new LinkedHashMap<>();
+
+    /**
+     * Returns the main attributes.
+     *
+     * @return the main attributes
+     */
+    Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns the attributes of the sections by section name.
+     *
+     * @return the sections
+     */
+    Map<String, Map<String, String>> getSections() {
+        return sections;
+    }
+
+    /**
+     * Reads a manifest line by line from the stream, without loading the whole
+     * file into memory.
+     *
+     * @param in      the stream
+     * @param charset the charset of the manifest
+     * @param source  the description of the manifest used in error messages
+     * @return the manifest contents
+     * @throws IOException if the stream cannot be read
+     */
+    static ManifestContents read(InputStream in, Charset charset, String source) throws IOException {
+        ManifestContents contents = new ManifestContents();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+        // null between a blank line and the Name attribute starting the next section
+        Map<String, String> current = contents.attributes;
+        String key = null;
+        StringBuilder value = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(" ")) {
+                if (value == null) {
+                    throw new GradleException("Invalid continuation line in manifest " + source + ": " + line);
+                }
+                value.append(line, 1, line.length());
+                continue;
+            }
+            if (key != null) {
+                current = contents.put(current, key, value.toString());
+                key = null;
+                value = null;
+            }
+            if (line.isEmpty()) {
+                current = null;
+                continue;
+            }
+            int separator = line.indexOf(':');
+            if (separator <= 0) {
+                throw new GradleException("Invalid line in manifest " + source + ": " + line);
+            }
+            key = line.substring(0, separator);
+            int start = line.startsWith(" ", separator + 1) ? separator + 2 : separator + 1;
+            value = new StringBuilder(line.substring(start));
+            if (current == null && !NAME.equalsIgnoreCase(key)) {
+                throw new GradleException("Manifest section does not start with Name in " + source + ": " + line);
+            }
+        }
+        if (key != null) {
+            contents.put(current, key, value.toString());
+        }
+        return contents;
+    }
+
+    private Map<String, String> put(Map<String, String> current, String key, String value) {
+        if (current == null) {
+            return sections.computeIfAbsent(value, __ -> new LinkedHashMap<>());
+        }
+        current.put(key, value);
+        return current;
+    }
+
+    /**
+     * Returns the manifest in the {@code MANIFEST.MF} format, encoded in UTF-8
+     * with lines wrapped at 72 bytes. The {@code Manifest-Version} attribute is
+     * written first and defaults to {@code 1.0}.
+     *
+     * @return the encoded manifest
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeAttribute(out, MANIFEST_VERSION, attributes.getOrDefault(MANIFEST_VERSION, "1.0"));
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            if (!MANIFEST_VERSION.equals(attribute.getKey())) {
+                writeAttribute(out, attribute.getKey(), attribute.getValue());
+            }
+        }
+        writeNewline(out);
+        for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+            writeAttribute(out, NAME, section.getKey());
+            for (Map.Entry<String, String> attribute : section.getValue().entrySet()) {
+                writeAttribute(out, attribute.getKey(), attribute.getValue());
+            }
+            writeNewline(out);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeAttribute(ByteArrayOutputStream out, String key, String value) {
+        String line = key + ": " + value;
+        int length = 0;
+        for (int i = 0; i < line.length();) {
+            int codePoint = line.codePointAt(i);
+            byte[] bytes = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            if (length + bytes.length > MAX_LINE_LENGTH) {
+                writeNewline(out);
+                out.write(' ');
+                length = 1;
+            }
+            out.write(bytes, 0, bytes.length);
+            length += bytes.length;
+            i += Character.charCount(codePoint);
+        }
+        writeNewline(out);
+    }
+
+    private static void writeNewline(ByteArrayOutputStream out) {
+        out.write('\r');
+        out.write('\n');
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.java.archives.ManifestMergeDetails;
+import org.gradle.api.java.archives.ManifestMergeSpec;
+import org.gradle.util.ConfigureUtil;
+
+import groovy.lang.Closure;
+
+/**
+ * A {@link ManifestMergeSpec} which merges manifest files the same way Gradle
+ * merges them into a Jar task's manifest: values of the merged manifest
+ * replace the values of the base manifest, and each entry can be changed or
+ * excluded by the {@link #eachEntry(Action) entry actions}.
+ */
+final class ManifestMerge implements ManifestMergeSpec {
+
+    private final Function<Object, File> fileResolver;
+    private final List<Object> mergePaths = new ArrayList<>();
+    private final List<Action<? super ManifestMergeDetails>> actions = new ArrayList<>();
+    private String contentCharset = "UTF-8";
+
+    /**
+     * @param fileResolver resolves the paths passed to {@link #from(Object...)}
+     */
+    ManifestMerge(Function<Object, File> fileResolver) {
+        this.fileResolver = fileResolver;
+    }
+
+    @Override
+    public String getContentCharset() {
+        return contentCharset;
+    }
+
+    @Override
+    public void setContentCharset(String contentCharset) {
+        this.contentCharset = contentCharset;
+    }
+
+    @Override
+    public ManifestMergeSpec from(Object... mergePaths) {
+        this.mergePaths.addAll(Arrays.asList(mergePaths));
+        return this;
+    }
+
+    @Override
+    public ManifestMergeSpec eachEntry(Action<? super ManifestMergeDetails> action) {
+        actions.add(action);
+        return this;
+    }
+
+    @Override
+    public ManifestMergeSpec eachEntry(Closure<?> closure) {
+        return eachEntry(ConfigureUtil.configureUsing(closure));
+    }
+
+    /**
+     * Merges the manifests of this spec into the base manifest. Manifest files
+     * which do not exist are ignored.
+     *
+     * @param base the base manifest
+     * @return the merged manifest
+     */
+    ManifestContents merge(ManifestContents base) {
+        ManifestContents merged = base;
+        for (Object mergePath : mergePaths) {
+            File file = fileResolver.apply(mergePath);
+            if (file.isFile()) {
+                merged = merge(merged, read(file));
+            }
+        }
+        return merged;
+    }
+
+    private ManifestContents read(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return ManifestContents.read(in, Charset.forName(contentCharset), file.getPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ManifestContents merge(ManifestContents base, ManifestContents toMerge) {
+        ManifestContents merged = new ManifestContents();
+        mergeSection(null, merged.getAttributes(), base.getAttributes(), toMerge.getAttributes());
+        Set<String> sections = new LinkedHashSet<>(base.getSections().keySet());
+        sections.addAll(toMerge.getSections().keySet());
+        for (String section : sections) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            mergeSection(section, attributes, base.getSections().getOrDefault(section, new LinkedHashMap<>()),
+                    toMerge.getSections().getOrDefault(section, new LinkedHashMap<>()));
+            if (!attributes.isEmpty()) {
+                merged.getSections().put(section, attributes);
+            }
+        }
+        return merged;
+    }
+
+    private void mergeSection(String section, Map<String, String> merged, Map<String, String> base,
+            Map<String, String> toMerge) {
+        List<Details> details = new ArrayList<>();
+        for (Map.Entry<String, String> entry : base.entrySet()) {
+            details.add(new Details(section, entry.getKey(), entry.getValue(), toMerge.get(entry.getKey())));
+        }
+        for (Map.Entry<String, String> entry : toMerge.entrySet()) {
+            if (!base.containsKey(entry.getKey())) {
+                details.add(new Details(section, entry.getKey(), null, entry.getValue()));
+            }
+        }
+        for (Details entry : details) {
+            for (Action<? super ManifestMergeDetails> action : actions) {
+                action.execute(entry);
+            }
+            if (!entry.excluded && entry.value != null) {
+                merged.put(entry.key, entry.value);
+            }
+        }
+    }
+
+    private static final class Details implements ManifestMergeDetails {
+
+        private final String section;
+        private final String key;
+        private final String baseValue;
+        private final String mergeValue;
+        private String value;
+        private boolean excluded;
+
+        Details(String section, String key, String baseValue, String mergeValue) {
+            this.section = section;
+            this.key = key;
+            this.baseValue = baseValue;
+            this.mergeValue = mergeValue;
+            this.value = mergeValue != null ? mergeValue : baseValue;
+        }
+
+        @Override
+        public String getSection() {
+            return section;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String getBaseValue() {
+            return baseValue;
+        }
+
+        @Override
+        public String getMergeValue() {
+            return mergeValue;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public void exclude() {
+            excluded = true;
+        }
+    }
+
+}
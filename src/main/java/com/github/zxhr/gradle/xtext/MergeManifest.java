@@ -1,35 +1,45 @@
 package com.github.zxhr.gradle.xtext;
 
 import java.io.File;
-
-import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.java.archives.Manifest;
 import org.gradle.api.java.archives.ManifestMergeSpec;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
-import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.TaskAction;
-import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.bundling.Jar;
 
 /**
- * Task for merging the Xtext-generated manifest into the Jar task's manifest.
+ * Task for merging the Xtext-generated manifests into a single manifest, which
+ * is merged into the Jar task's manifest.
+ * 
+ * <p>
+ * The manifests are merged in the order of {@link #getManifests()}, the values
+ * of later manifests replacing those of earlier ones. The Jar task merges the
+ * result {@link Manifest#from(Object, Action) into its manifest} according to
+ * the {@link #merge(Action) merge action}, so the base values the action sees
+ * are those of the Jar manifest.
+ * </p>
  */
+@CacheableTask
 public abstract class MergeManifest extends DefaultTask {
 
     private Action<? super ManifestMergeSpec> mergeAction = null;
 
-    @Inject
-    protected abstract TaskContainer getTasks();
-
     /**
      * Returns the collection of Xtext-generated manifest files that will be merged
      * into the {@link Jar#manifest(Action) Jar manifest}.
@@ -38,9 +48,17 @@ public abstract class MergeManifest extends DefaultTask {
      */
     @InputFiles
     @PathSensitive(PathSensitivity.NONE)
-    @SkipWhenEmpty
     public abstract ConfigurableFileCollection getManifests();
 
+    /**
+     * Returns the merged manifest file, which the {@link #getJarTaskName() Jar
+     * task} merges into its manifest.
+     * 
+     * @return the merged manifest file
+     */
+    @OutputFile
+    public abstract RegularFileProperty getMergedManifest();
+
     /**
      * Returns the {@link Jar} task into which the Xtext-generated manifests will be
      * merged.
@@ -62,23 +80,28 @@ public void merge(Action<? super ManifestMergeSpec> action) {
         this.mergeAction = action;
     }
 
+    /**
+     * Returns the action configuring how the merged manifest is merged into the
+     * {@link Jar#manifest(Action) Jar manifest}. The action is tracked as an
+     * input of the Jar task.
+     * 
+     * @return the manifest merge action, or {@code null} if none is configured
+     */
+    @Internal
+    public Action<? super ManifestMergeSpec> getMergeAction() {
+        return mergeAction;
+    }
+
     @TaskAction
-    protected void mergeManifest() {
-        String taskName = getJarTaskName().getOrNull();
-        if (taskName == null) {
-            super.setDidWork(false);
-            return;
+    protected void mergeManifest() throws IOException {
+        ManifestMerge spec = new ManifestMerge(File.class::cast);
+        for (File xtextManifest : getManifests()) {
+            spec.from(xtextManifest);
         }
-        getTasks().named(taskName, Jar.class, task -> {
-            Manifest manifest = task.getManifest();
-            for (File xtextManifest : getManifests()) {
-                if (mergeAction == null) {
-                    manifest.from(xtextManifest);
-                } else {
-                    manifest.from(xtextManifest, mergeAction);
-                }
-            }
-        });
+        ManifestContents merged = spec.merge(new ManifestContents());
+        Path mergedManifest = getMergedManifest().get().getAsFile().toPath();
+        Files.createDirectories(mergedManifest.getParent());
+        Files.write(mergedManifest, merged.toByteArray());
     }
 
 }
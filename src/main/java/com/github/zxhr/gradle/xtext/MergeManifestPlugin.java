@@ -2,10 +2,14 @@
 
 import static com.github.zxhr.gradle.xtext.AbstractXtextPlugin.MERGE_MANIFEST_TASK_NAME;
 
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.java.archives.ManifestMergeSpec;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
@@ -18,13 +22,45 @@ public void apply(Project project) {
         project.getPluginManager().apply(JavaPlugin.class);
         TaskProvider<MergeManifest> mergeTask = tasks.register(MERGE_MANIFEST_TASK_NAME, MergeManifest.class, task -> {
             task.getJarTaskName().set(JavaPlugin.JAR_TASK_NAME);
+            task.getMergedManifest().convention(project.getLayout().getBuildDirectory()
+                    .file("xtext/" + MERGE_MANIFEST_TASK_NAME + "/MANIFEST.MF"));
         });
-        project.afterEvaluate(__ -> {
-            Provider<String> taskName = mergeTask.flatMap(MergeManifest::getJarTaskName);
-            if (taskName.isPresent()) {
-                tasks.named(taskName.get(), Jar.class).configure(task -> task.dependsOn(mergeTask));
+        Provider<String> none = project.getProviders().provider(() -> null);
+        Provider<String> jarTaskName = mergeTask.flatMap(t -> t.getEnabled() ? t.getJarTaskName() : none);
+        Provider<RegularFile> mergedManifest = mergeTask.flatMap(MergeManifest::getMergedManifest);
+        Provider<Action<? super ManifestMergeSpec>> mergeAction = mergeTask.map(MergeManifest::getMergeAction);
+        tasks.withType(Jar.class).configureEach(task -> {
+            if (!task.getName().equals(jarTaskName.getOrNull())) {
+                return;
             }
+            task.getInputs().file(mergedManifest).withPathSensitivity(PathSensitivity.NONE)
+                    .withPropertyName("xtextManifest");
+            task.getInputs().property("xtextManifestMergeAction", mergeAction.map(a -> a.getClass().getName()))
+                    .optional(true);
+            task.getManifest().from(mergedManifest.map(RegularFile::getAsFile), new XtextManifestMerge(mergeAction));
         });
     }
 
+    /**
+     * Applies the {@link MergeManifest#merge(Action) merge action} when the
+     * merged Xtext-generated manifest is merged into the Jar manifest, which
+     * happens when the Jar task runs.
+     */
+    private static final class XtextManifestMerge implements Action<ManifestMergeSpec> {
+
+        private final Provider<Action<? super ManifestMergeSpec>> mergeAction;
+
+        XtextManifestMerge(Provider<Action<? super ManifestMergeSpec>> mergeAction) {
+            this.mergeAction = mergeAction;
+        }
+
+        @Override
+        public void execute(ManifestMergeSpec spec) {
+            Action<? super ManifestMergeSpec> action = mergeAction.getOrNull();
+            if (action != null) {
+                action.execute(spec);
+            }
+        }
+    }
+
 }
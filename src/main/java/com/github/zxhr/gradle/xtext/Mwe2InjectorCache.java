@@ -0,0 +1,117 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.emf.mwe2.language.Mwe2StandaloneSetup;
+import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext;
+import org.eclipse.xtext.util.XtextVersion;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * Holds the {@link Mwe2StandaloneSetup} injector of the JVM the generator runs
+ * in, keyed by the Xtext version and the hash of the classpath it was created
+ * from. Isolated workers use it directly; the generator running in the Gradle
+ * daemon uses it through the {@link XtextGeneratorService}.
+ */
+final class Mwe2InjectorCache {
+
+    private static final Logger LOGGER = Logging.getLogger(Mwe2InjectorCache.class);
+
+    private static Entry entry;
+
+    private Mwe2InjectorCache() {
+    }
+
+    /**
+     * Returns the cached entry, creating a new one if there is none or if the
+     * Xtext version or classpath has changed.
+     * 
+     * @return the cached entry
+     */
+    static synchronized Entry get() {
+        String key = key();
+        if (entry == null || !entry.key.equals(key)) {
+            LOGGER.info(entry == null ? "Creating MWE2 injector" : "Classpath changed, recreating MWE2 injector");
+            entry = new Entry(key, new Mwe2StandaloneSetup().createInjectorAndDoEMFRegistration());
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the key of the current Xtext version and classpath, which changes
+     * whenever the classes loaded by the generator may have changed.
+     * 
+     * @return the key of the current Xtext version and classpath
+     */
+    static String key() {
+        return XtextVersion.getCurrent().getVersion() + '@' + classpathHash(Mwe2StandaloneSetup.class.getClassLoader());
+    }
+
+    private static String classpathHash(ClassLoader classLoader) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    update(digest, url);
+                }
+            }
+        }
+        update(digest, System.getProperty("java.class.path", ""));
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static void update(MessageDigest digest, URL url) {
+        update(digest, url.toString());
+        if ("file".equals(url.getProtocol())) {
+            try {
+                File file = new File(url.toURI());
+                update(digest, file.length() + ":" + file.lastModified());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // not a local file; the URL alone identifies the entry
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * The cached {@link IWorkflowContext} factory.
+     */
+    static final class Entry {
+
+        private final String key;
+        private final Provider<IWorkflowContext> workflowContexts;
+
+        private Entry(String key, Injector injector) {
+            this.key = key;
+            this.workflowContexts = injector.getProvider(IWorkflowContext.class);
+        }
+
+        IWorkflowContext newWorkflowContext() {
+            return workflowContexts.get();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.xtext.resource.DerivedStateAwareResource;
+import org.eclipse.xtext.resource.persistence.ResourceStorageLoadable;
+import org.eclipse.xtext.resource.persistence.ResourceStorageWritable;
+import org.eclipse.xtext.resource.persistence.StorageAwareResource;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Stores the parsed and linked grammars a language loaded from the classpath,
+ * such as inherited grammars like {@code Terminals} or {@code Xbase}, in
+ * Xtext's binary resource storage format, which includes the node model, so
+ * that later generations, also in other JVMs, load them instead of parsing and
+ * linking them again.
+ *
+ * <p>
+ * The grammars of a language are stored in a single file together with the
+ * Xtext version and the hash of the classpath they were loaded with, and with
+ * the hash of each grammar's content. The stored grammars are ignored when any
+ * of them changed. Like the {@link LoadedResourcesCache}, only grammars loaded
+ * from the classpath are stored; the language's own grammar is always parsed.
+ * </p>
+ */
+final class ParsedGrammarCache {
+
+    private static final Logger LOGGER = Logging.getLogger(ParsedGrammarCache.class);
+    private static final int FORMAT = 1;
+
+    private ParsedGrammarCache() {
+    }
+
+    /**
+     * Loads the grammars stored for the language into the resource set the
+     * language's grammar is loaded into.
+     *
+     * @param directory   the directory the grammars are stored in
+     * @param grammarUri  the grammar URI of the language
+     * @param resourceSet the language's resource set
+     */
+    static void load(File directory, String grammarUri, ResourceSet resourceSet) {
+        File file = file(directory, grammarUri);
+        if (!file.isFile()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            if (in.readInt() != FORMAT || !in.readUTF().equals(Mwe2InjectorCache.key())) {
+                LOGGER.info("Ignoring grammars stored for {} with another Xtext version or classpath", grammarUri);
+                return;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                URI uri = URI.createURI(in.readUTF());
+                String contentHash = in.readUTF();
+                byte[] storage = new byte[in.readInt()];
+                in.readFully(storage);
+                if (!contentHash.equals(contentHash(resourceSet.getURIConverter(), uri))) {
+                    LOGGER.info("Ignoring grammars stored for {} because {} changed", grammarUri, uri);
+                    return;
+                }
+                entries.add(new Entry(uri, storage));
+            }
+        } catch (IOException e) {
+            LOGGER.info("Ignoring unreadable grammars stored for {}", grammarUri, e);
+            return;
+        }
+        List<Resource> loaded = new ArrayList<>();
+        try {
+            for (Entry entry : entries) {
+                Resource resource = resourceSet.createResource(entry.uri);
+                loaded.add(resource);
+                if (!(resource instanceof StorageAwareResource)) {
+                    throw new IOException(entry.uri + " is not stored in the binary resource storage format");
+                }
+                ((StorageAwareResource) resource).loadFromStorage(
+                        new ResourceStorageLoadable(new ByteArrayInputStream(entry.storage), true));
+                if (resource instanceof DerivedStateAwareResource) {
+                    // the grammar was stored after it was linked
+                    ((DerivedStateAwareResource) resource).setFullyInitialized(true);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Ignoring unreadable grammars stored for {}", grammarUri, e);
+            resourceSet.getResources().removeAll(loaded);
+            return;
+        }
+        LOGGER.info("Loaded {} stored grammars for {}", loaded.size(), grammarUri);
+    }
+
+    /**
+     * Stores the grammars of the language's resource set which were loaded from
+     * the classpath, unless all of them were already prepared for the generation
+     * by {@link #load(File, String, ResourceSet)} or the
+     * {@link LoadedResourcesCache}. A failure to store the grammars is logged and
+     * does not fail the generation.
+     *
+     * @param directory   the directory the grammars are stored in
+     * @param grammarUri  the grammar URI of the language
+     * @param resourceSet the language's resource set
+     * @param prepared    the resources the resource set held before the
+     *                    language's grammar was loaded
+     */
+    static void store(File directory, String grammarUri, ResourceSet resourceSet, Collection<Resource> prepared) {
+        if (resourceSet == null) {
+            return;
+        }
+        URIConverter uriConverter = resourceSet.getURIConverter();
+        List<StorageAwareResource> grammars = new ArrayList<>();
+        boolean parsed = false;
+        for (Resource resource : resourceSet.getResources()) {
+            if (resource instanceof StorageAwareResource
+                    && LoadedResourcesCache.isReusable(resource, uriConverter)) {
+                grammars.add((StorageAwareResource) resource);
+                parsed |= !prepared.contains(resource);
+            }
+        }
+        if (!parsed) {
+            return;
+        }
+        File file = file(directory, grammarUri);
+        File temporary = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temporary = File.createTempFile(file.getName(), ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary.toPath()))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(Mwe2InjectorCache.key());
+                out.writeInt(grammars.size());
+                for (StorageAwareResource grammar : grammars) {
+                    ByteArrayOutputStream storage = new ByteArrayOutputStream();
+                    new ResourceStorageWritable(storage, true).writeResource(grammar);
+                    out.writeUTF(grammar.getURI().toString());
+                    out.writeUTF(contentHash(uriConverter, grammar.getURI()));
+                    out.writeInt(storage.size());
+                    storage.writeTo(out);
+                }
+            }
+            // replaced atomically, since concurrent workers may load the grammars
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the grammars are only stored to speed up later generations
+            LOGGER.warn("Could not store the grammars for {}: {}", grammarUri, e.toString());
+            if (temporary != null) {
+                temporary.delete();
+            }
+            return;
+        }
+        LOGGER.info("Stored {} grammars for {}", grammars.size(), grammarUri);
+    }
+
+    private static File file(File directory, String grammarUri) {
+        return new File(directory, hash(grammarUri.getBytes(StandardCharsets.UTF_8)) + ".bin");
+    }
+
+    private static String contentHash(URIConverter uriConverter, URI uri) throws IOException {
+        try (InputStream in = uriConverter.createInputStream(uri)) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                content.write(buffer, 0, read);
+            }
+            return hash(content.toByteArray());
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest(bytes)) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static final class Entry {
+
+        private final URI uri;
+        private final byte[] storage;
+
+        Entry(URI uri, byte[] storage) {
+            this.uri = uri;
+            this.storage = storage;
+        }
+    }
+}
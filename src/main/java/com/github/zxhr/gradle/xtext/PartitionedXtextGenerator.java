@@ -0,0 +1,821 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.mwe.core.WorkflowContext;
+import org.eclipse.emf.mwe.core.issues.Issues;
+import org.eclipse.emf.mwe.core.monitor.ProgressMonitor;
+import org.eclipse.xtext.xtext.generator.CompositeGeneratorFragment2;
+import org.eclipse.xtext.xtext.generator.IXtextGeneratorFragment;
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.eclipse.xtext.xtext.generator.model.ManifestAccess;
+import org.eclipse.xtext.xtext.generator.model.PluginXmlAccess;
+import org.eclipse.xtext.xtext.generator.model.project.BundleProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AbstractAntlrGeneratorFragment2;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AntlrToolFacade;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.google.inject.Injector;
+
+/**
+ * An {@link XtextGenerator} which can run a part of the generation: cleaning
+ * the output directories, generating a subset of the languages and generating
+ * the common infrastructure.
+ *
+ * <p>
+ * The manifest and {@code plugin.xml} contributions of each generated
+ * language are stored in the contributions directory, from where they are
+ * read again when the common infrastructure is generated without generating
+ * all languages.
+ * </p>
+ *
+ * <p>
+ * With a {@link GradleXtextProjectConfig}, the files the generation deletes or
+ * overwrites are kept as {@link RetainedFiles}, and the files which are
+ * generated again with the same content are restored from them, so that
+ * unchanged files keep their timestamps even though the cleaner deleted them.
+ * The produced files are recorded in the output index. When only some of the
+ * languages are generated, the output directories are not cleaned; instead,
+ * the files the index of the previous generation lists for a language are
+ * retained before the language is generated, and the files it lists which are
+ * no longer generated are deleted after the common infrastructure is
+ * generated.
+ * </p>
+ *
+ * <p>
+ * The time spent in each phase, language and fragment is recorded as
+ * {@link GenerationMetrics}. Generations which do not generate the common
+ * infrastructure store their metrics in the metrics directory, from where they
+ * are merged into the report when the common infrastructure is generated.
+ * </p>
+ */
+class PartitionedXtextGenerator extends XtextGenerator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logging.getLogger(PartitionedXtextGenerator.class);
+    private static final String CONTRIBUTIONS_EXTENSION = ".contributions";
+    private static final String METRICS_EXTENSION = ".metrics";
+    private static final String DECORATED_SUFFIX = "_Decorated";
+    private static final String COMPOSITE_GENERATOR_EXCEPTION = XtextGenerator.class.getPackage().getName()
+            + ".CompositeGeneratorException";
+
+    private boolean clean = true;
+    private boolean incremental;
+    private Set<Integer> generatedLanguages;
+    private boolean infrastructure = true;
+    private File contributionsDirectory;
+    private File metricsDirectory;
+    private File metricsReport;
+    private boolean reuseLoadedResources;
+    private File parsedGrammarsDirectory;
+    private File outputIndex;
+    private File antlrOutputDirectory;
+    private File retainedFilesDirectory;
+    private transient GradleAntlrToolFacade antlrTool;
+    private transient Map<XtextGeneratorLanguage, List<Resource>> preparedResources;
+    private transient GenerationMetrics metrics;
+    private transient XtextGeneratorLanguage initializingLanguage;
+    private transient long initializingLanguageStart;
+
+    /**
+     * Sets whether the output directories are cleaned by the
+     * {@link #getCleaner() cleaner} before generating.
+     *
+     * @param clean whether the output directories are cleaned
+     */
+    void setClean(boolean clean) {
+        this.clean = clean;
+    }
+
+    /**
+     * Sets whether only the languages whose grammars changed, and the languages
+     * depending on them, are generated without cleaning the output directories.
+     * The stale files of incremental generations with a
+     * {@link GradleXtextProjectConfig} are determined from the
+     * {@link #setOutputIndex(File) output index}.
+     *
+     * @param incremental whether the generation is incremental
+     */
+    void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Sets the indices of the languages to generate. All languages are
+     * generated if {@code null}.
+     *
+     * @param generatedLanguages the indices of the languages to generate
+     */
+    void setGeneratedLanguages(Collection<Integer> generatedLanguages) {
+        this.generatedLanguages = generatedLanguages == null ? null : new TreeSet<>(generatedLanguages);
+    }
+
+    /**
+     * Sets whether the common infrastructure (e.g., manifests and
+     * {@code plugin.xml}) is generated.
+     *
+     * @param infrastructure whether the common infrastructure is generated
+     */
+    void setInfrastructure(boolean infrastructure) {
+        this.infrastructure = infrastructure;
+    }
+
+    /**
+     * Sets the directory where language contributions are stored.
+     *
+     * @param contributionsDirectory the directory where language contributions
+     *                               are stored
+     */
+    void setContributionsDirectory(File contributionsDirectory) {
+        this.contributionsDirectory = contributionsDirectory;
+    }
+
+    /**
+     * Sets the directory where the metrics of generations which do not generate
+     * the common infrastructure are stored.
+     *
+     * @param metricsDirectory the directory where partial metrics are stored
+     */
+    void setMetricsDirectory(File metricsDirectory) {
+        this.metricsDirectory = metricsDirectory;
+    }
+
+    /**
+     * Sets the file the JSON report of the {@link GenerationMetrics} is written
+     * to when the common infrastructure is generated.
+     *
+     * @param metricsReport the report file, or {@code null} for no report
+     */
+    void setMetricsReport(File metricsReport) {
+        this.metricsReport = metricsReport;
+    }
+
+    /**
+     * Sets whether the resources the languages load from the classpath are kept
+     * by the {@link LoadedResourcesCache} and reused by the next generation in the
+     * same JVM.
+     *
+     * @param reuseLoadedResources whether loaded resources are reused
+     */
+    void setReuseLoadedResources(boolean reuseLoadedResources) {
+        this.reuseLoadedResources = reuseLoadedResources;
+    }
+
+    /**
+     * Sets the directory where the {@link ParsedGrammarCache} stores the
+     * grammars the languages load from the classpath for later generations.
+     *
+     * @param parsedGrammarsDirectory the directory, or {@code null} if parsed
+     *                                grammars are not stored
+     */
+    void setParsedGrammarsDirectory(File parsedGrammarsDirectory) {
+        this.parsedGrammarsDirectory = parsedGrammarsDirectory;
+    }
+
+    /**
+     * Sets the file where the {@link GenerationIndex} of the files produced by
+     * the generation is stored when the common infrastructure is generated.
+     *
+     * @param outputIndex the index file, or {@code null} if no index is stored
+     */
+    void setOutputIndex(File outputIndex) {
+        this.outputIndex = outputIndex;
+    }
+
+    /**
+     * Sets the directory where the {@link CachingAntlrToolFacade} caches the
+     * output of the ANTLR tool for later generations.
+     *
+     * @param antlrOutputDirectory the directory, or {@code null} if the ANTLR
+     *                             output is not cached
+     */
+    void setAntlrOutputDirectory(File antlrOutputDirectory) {
+        this.antlrOutputDirectory = antlrOutputDirectory;
+    }
+
+    /**
+     * Sets the directory where the {@link RetainedFiles} of a generation with a
+     * {@link GradleXtextProjectConfig} are kept until the common infrastructure
+     * is generated.
+     *
+     * @param retainedFilesDirectory the directory, or {@code null} if files
+     *                               are not retained
+     */
+    void setRetainedFilesDirectory(File retainedFilesDirectory) {
+        this.retainedFilesDirectory = retainedFilesDirectory;
+    }
+
+    private GenerationMetrics getMetrics() {
+        if (metrics == null) {
+            metrics = new GenerationMetrics();
+            GenerationMetrics.resetPeakHeap();
+        }
+        return metrics;
+    }
+
+    @Override
+    public void initialize() {
+        long start = System.nanoTime();
+        super.initialize();
+        finishLanguageInitialization();
+        getMetrics().addPhase(GenerationMetrics.INITIALIZE, System.nanoTime() - start);
+    }
+
+    @Override
+    protected Injector createInjector() {
+        long start = System.nanoTime();
+        try {
+            Injector injector = super.createInjector();
+            GradleXtextProjectConfig projectConfig = getGradleProjectConfig();
+            if (projectConfig == null) {
+                return injector;
+            }
+            // the ANTLR fragments of all languages share the facade
+            antlrTool = antlrOutputDirectory == null ? new GradleAntlrToolFacade(projectConfig)
+                    : new CachingAntlrToolFacade(antlrOutputDirectory, projectConfig);
+            return injector.createChildInjector(binder -> binder.bind(AntlrToolFacade.class).toInstance(antlrTool));
+        } finally {
+            getMetrics().addPhase(GenerationMetrics.CREATE_INJECTOR, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected Injector createLanguageInjector(Injector generatorInjector, XtextGeneratorLanguage language) {
+        // the language is initialized, which loads its grammar, until the next
+        // language injector is created or the generator is initialized
+        finishLanguageInitialization();
+        initializingLanguage = language;
+        initializingLanguageStart = System.nanoTime();
+        Injector languageInjector = super.createLanguageInjector(generatorInjector, language);
+        if ((reuseLoadedResources || parsedGrammarsDirectory != null) && language.getResourceSet() == null) {
+            ResourceSet resourceSet = languageInjector.getInstance(ResourceSet.class);
+            boolean restored = reuseLoadedResources
+                    && LoadedResourcesCache.restore(language.getGrammarUri(), resourceSet);
+            if (!restored && parsedGrammarsDirectory != null) {
+                ParsedGrammarCache.load(parsedGrammarsDirectory, language.getGrammarUri(), resourceSet);
+            }
+            if (preparedResources == null) {
+                preparedResources = new HashMap<>();
+            }
+            preparedResources.put(language, new ArrayList<>(resourceSet.getResources()));
+            language.setResourceSet(resourceSet);
+        }
+        return languageInjector;
+    }
+
+    private void finishLanguageInitialization() {
+        if (initializingLanguage != null) {
+            getMetrics().language(grammarName(initializingLanguage))
+                    .addInitialize(System.nanoTime() - initializingLanguageStart);
+            initializingLanguage = null;
+        }
+    }
+
+    /**
+     * Removes all languages which are neither generated nor needed for the
+     * common infrastructure, so that their grammars are not loaded.
+     */
+    private void retainRequiredLanguages() {
+        if (!infrastructure && generatedLanguages != null) {
+            List<XtextGeneratorLanguage> languages = getLanguageConfigs();
+            List<XtextGeneratorLanguage> retained = new ArrayList<>();
+            for (int i = 0; i < languages.size(); i++) {
+                if (generatedLanguages.contains(i)) {
+                    retained.add(languages.get(i));
+                }
+            }
+            languages.retainAll(retained);
+            generatedLanguages = null;
+        }
+    }
+
+    @Override
+    protected void checkConfigurationInternal(Issues issues) {
+        retainRequiredLanguages();
+        super.checkConfigurationInternal(issues);
+    }
+
+    @Override
+    protected void invokeInternal(WorkflowContext ctx, ProgressMonitor monitor, Issues issues) {
+        retainRequiredLanguages();
+        initialize();
+        GenerationMetrics metrics = getMetrics();
+        try {
+            GradleXtextProjectConfig projectConfig = getGradleProjectConfig();
+            RetainedFiles retainedFiles = null;
+            GenerationIndex previousIndex = null;
+            if (projectConfig != null && retainedFilesDirectory != null) {
+                retainedFiles = new RetainedFiles(retainedFilesDirectory, projectConfig.getGeneratedDirectories());
+                projectConfig.getGeneratedFiles().setRetainedFiles(retainedFiles);
+                if (incremental && outputIndex != null) {
+                    previousIndex = GenerationIndex.read(outputIndex);
+                }
+            }
+            if (clean) {
+                long cleanStart = System.nanoTime();
+                clean(projectConfig);
+                metrics.addPhase(GenerationMetrics.CLEAN, System.nanoTime() - cleanStart);
+            }
+            List<XtextGeneratorLanguage> languages = getLanguageConfigs();
+            Map<XtextGeneratorLanguage, Contributions> contributions = new HashMap<>();
+            Contributions initial = Contributions.record(getBundles());
+            boolean failed = false;
+            long languagesStart = System.nanoTime();
+            for (int i = 0; i < languages.size(); i++) {
+                XtextGeneratorLanguage language = languages.get(i);
+                if (generatedLanguages != null && !generatedLanguages.contains(i)) {
+                    continue;
+                }
+                GenerationMetrics.LanguageMetrics languageMetrics = metrics.language(grammarName(language));
+                long languageStart = System.nanoTime();
+                try {
+                    LOGGER.info("Generating {}", language.getGrammar().getName());
+                    initial.reset(getBundles());
+                    if (previousIndex != null) {
+                        // the EMF generator writes the model code directly, so the
+                        // unchanged files are restored from the retained files
+                        previousIndex.retain(grammarName(language), projectConfig.getGeneratedDirectories(),
+                                retainedFiles);
+                    }
+                    List<Exception> exceptions = generateFragments(language, languageMetrics, projectConfig);
+                    if (!exceptions.isEmpty()) {
+                        for (Exception exception : exceptions) {
+                            handleException(exception, issues);
+                        }
+                        failed = true;
+                        continue;
+                    }
+                    if (projectConfig != null) {
+                        projectConfig.getGeneratedFiles().setOwner(grammarName(language), null);
+                    }
+                    generateSetups(language);
+                    generateModules(language);
+                    generateExecutableExtensionFactory(language);
+                    Contributions languageContributions = Contributions.record(getBundles()).without(initial);
+                    if (projectConfig != null) {
+                        GeneratedEcoreModels.record(language.getGrammar(), getFragments(language), projectConfig);
+                        languageContributions.generatedFiles.putAll(projectConfig.getGeneratedFiles().drain());
+                        recordParserSize(language, languageContributions.generatedFiles, languageMetrics);
+                    }
+                    contributions.put(language, languageContributions);
+                    if (contributionsDirectory != null) {
+                        languageContributions.write(contributionsFile(language));
+                    }
+                } catch (Exception e) {
+                    handleException(e, issues);
+                    failed = true;
+                } finally {
+                    languageMetrics.addGenerate(System.nanoTime() - languageStart);
+                }
+            }
+            metrics.addPhase(GenerationMetrics.GENERATE_LANGUAGES, System.nanoTime() - languagesStart);
+            if (antlrTool instanceof CachingAntlrToolFacade) {
+                CachingAntlrToolFacade cachingAntlrTool = (CachingAntlrToolFacade) antlrTool;
+                LOGGER.info("Restored the ANTLR output of {} grammars and ran ANTLR for {} grammars",
+                        cachingAntlrTool.getHits(), cachingAntlrTool.getMisses());
+            }
+            initial.reset(getBundles());
+            // the contributions of a failed language are missing, so neither the
+            // infrastructure nor the index can be derived from this generation
+            if (infrastructure && !failed) {
+                long infrastructureStart = System.nanoTime();
+                for (XtextGeneratorLanguage language : languages) {
+                    Contributions languageContributions = contributions.get(language);
+                    if (languageContributions == null) {
+                        languageContributions = Contributions.read(contributionsFile(language));
+                        contributions.put(language, languageContributions);
+                    }
+                    languageContributions.apply(getBundles());
+                }
+                LOGGER.info("Generating common infrastructure");
+                if (projectConfig != null) {
+                    projectConfig.getGeneratedFiles().setOwner(null, null);
+                }
+                generatePluginXmls();
+                generateManifests();
+                generateActivator();
+                generateServices();
+                metrics.addPhase(GenerationMetrics.GENERATE_INFRASTRUCTURE, System.nanoTime() - infrastructureStart);
+                if (projectConfig != null) {
+                    long deleteStart = System.nanoTime();
+                    Map<String, GeneratedFiles.Owner> generatedFiles = projectConfig.getGeneratedFiles().drain();
+                    for (XtextGeneratorLanguage language : languages) {
+                        generatedFiles.putAll(contributions.get(language).generatedFiles);
+                    }
+                    indexGeneratedFiles(projectConfig, generatedFiles);
+                    projectConfig.getGeneratedFiles().restoreRetained();
+                    metrics.addPhase(GenerationMetrics.DELETE_STALE_FILES, System.nanoTime() - deleteStart);
+                }
+            }
+            if (projectConfig != null) {
+                GeneratedFiles generatedFiles = projectConfig.getGeneratedFiles();
+                LOGGER.info("Wrote {} generated files, kept {} unchanged files and deleted {} stale files",
+                        generatedFiles.getWritten(), generatedFiles.getSkipped(), generatedFiles.getDeleted());
+                metrics.addFiles(generatedFiles);
+            }
+            if (parsedGrammarsDirectory != null && preparedResources != null) {
+                for (XtextGeneratorLanguage language : languages) {
+                    List<Resource> prepared = preparedResources.get(language);
+                    if (prepared != null) {
+                        ParsedGrammarCache.store(parsedGrammarsDirectory, language.getGrammarUri(),
+                                language.getResourceSet(), prepared);
+                    }
+                }
+            }
+            if (reuseLoadedResources) {
+                for (XtextGeneratorLanguage language : languages) {
+                    LoadedResourcesCache.retain(language.getGrammarUri(), language.getResourceSet());
+                }
+            }
+            metrics.recordPeakHeap();
+            reportMetrics(metrics);
+        } catch (Exception e) {
+            handleException(e, issues);
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the fragments of the language one by one, recording the time
+     * spent in each fragment and the files each fragment generated, and returns
+     * the exceptions thrown by the fragments.
+     */
+    private static List<Exception> generateFragments(XtextGeneratorLanguage language,
+            GenerationMetrics.LanguageMetrics languageMetrics, GradleXtextProjectConfig projectConfig) {
+        List<Exception> exceptions = new ArrayList<>();
+        for (IXtextGeneratorFragment fragment : getFragments(language)) {
+            if (projectConfig != null) {
+                projectConfig.getGeneratedFiles().setOwner(grammarName(language), fragmentName(fragment));
+            }
+            long start = System.nanoTime();
+            try {
+                fragment.generate();
+            } catch (Exception e) {
+                exceptions.add(e);
+            } finally {
+                languageMetrics.addFragment(fragmentName(fragment), System.nanoTime() - start);
+            }
+            if (projectConfig != null) {
+                projectConfig.flush();
+            }
+        }
+        return exceptions;
+    }
+
+    /**
+     * Records the size of the Java files generated by the language's ANTLR
+     * fragments, which depends on the parser options.
+     */
+    private static void recordParserSize(XtextGeneratorLanguage language,
+            Map<String, GeneratedFiles.Owner> generatedFiles, GenerationMetrics.LanguageMetrics languageMetrics) {
+        Set<String> parserFragments = new HashSet<>();
+        for (IXtextGeneratorFragment fragment : getFragments(language)) {
+            if (fragment instanceof AbstractAntlrGeneratorFragment2) {
+                parserFragments.add(fragmentName(fragment));
+            }
+        }
+        generatedFiles.forEach((path, owner) -> {
+            if (parserFragments.contains(owner.getFragment()) && path.endsWith(".java")) {
+                languageMetrics.addParserFile(new File(path).length());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<IXtextGeneratorFragment> getFragments(XtextGeneratorLanguage language) {
+        try {
+            // getFragments is protected
+            Method getFragments = CompositeGeneratorFragment2.class.getDeclaredMethod("getFragments");
+            getFragments.setAccessible(true);
+            return new ArrayList<>((List<IXtextGeneratorFragment>) getFragments.invoke(language));
+        } catch (ReflectiveOperationException e) {
+            throw new GradleException("Cannot read the fragments of " + grammarName(language), e);
+        }
+    }
+
+    static String fragmentName(IXtextGeneratorFragment fragment) {
+        Class<?> type = fragment.getClass();
+        while (type.getName().endsWith(DECORATED_SUFFIX) && type.getSuperclass() != null) {
+            type = type.getSuperclass();
+        }
+        return type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName();
+    }
+
+    private static String grammarName(XtextGeneratorLanguage language) {
+        return language.getGrammar() != null ? language.getGrammar().getName() : language.getGrammarUri();
+    }
+
+    /**
+     * Writes the report of the metrics, including the metrics stored by the
+     * other generations, if the common infrastructure is generated, and stores
+     * the metrics for the generation of the common infrastructure otherwise.
+     */
+    private void reportMetrics(GenerationMetrics metrics) {
+        File[] partialMetrics = metricsDirectory == null ? null : metricsDirectory.listFiles();
+        if (!infrastructure) {
+            if (metricsDirectory != null) {
+                try {
+                    Files.createDirectories(metricsDirectory.toPath());
+                    metrics.write(Files.createTempFile(metricsDirectory.toPath(), "generation", METRICS_EXTENSION)
+                            .toFile());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return;
+        }
+        if (partialMetrics != null) {
+            for (File partial : partialMetrics) {
+                if (partial.getName().endsWith(METRICS_EXTENSION)) {
+                    metrics.merge(GenerationMetrics.read(partial));
+                    partial.delete();
+                }
+            }
+        }
+        metrics.log(LOGGER);
+        if (metricsReport != null) {
+            metrics.writeReport(metricsReport);
+        }
+    }
+
+    /**
+     * Returns whether contributions are stored for all of the given grammars.
+     *
+     * @param contributionsDirectory the directory where language contributions
+     *                               are stored
+     * @param grammarNames           the grammar names, which may contain
+     *                               {@code null} for unknown grammars
+     * @return whether contributions are stored for all of the given grammars
+     */
+    static boolean hasContributions(File contributionsDirectory, Collection<String> grammarNames) {
+        for (String grammarName : grammarNames) {
+            if (grammarName == null
+                    || !new File(contributionsDirectory, grammarName + CONTRIBUTIONS_EXTENSION).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private File contributionsFile(XtextGeneratorLanguage language) {
+        if (contributionsDirectory == null) {
+            throw new GradleException("The contributions of " + language.getGrammar().getName()
+                    + " are unknown because it was not generated");
+        }
+        return new File(contributionsDirectory, language.getGrammar().getName() + CONTRIBUTIONS_EXTENSION);
+    }
+
+    private GradleXtextProjectConfig getGradleProjectConfig() {
+        XtextProjectConfig projectConfig = getConfiguration().getProject();
+        return projectConfig instanceof GradleXtextProjectConfig ? (GradleXtextProjectConfig) projectConfig : null;
+    }
+
+    /**
+     * Runs the {@link #getCleaner() cleaner}. With a
+     * {@link GradleXtextProjectConfig}, the resource directories are cleaned
+     * like the src-gen directories, and the files in the generated directories
+     * are retained first, if a directory for them is set.
+     */
+    private void clean(GradleXtextProjectConfig projectConfig) {
+        if (projectConfig != null) {
+            for (String resourcesGenPath : projectConfig.getResourcesGenPaths().values()) {
+                // the cleaner fails for missing extra directories
+                try {
+                    Files.createDirectories(new File(resourcesGenPath).toPath());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (retainedFilesDirectory != null) {
+                new RetainedFiles(retainedFilesDirectory, projectConfig.getGeneratedDirectories()).retainAll();
+            }
+        }
+        getCleaner().clean();
+    }
+
+    /**
+     * Stores the index of the generated files and, if only some of the languages
+     * were generated, deletes the files the index of the previous generation
+     * lists which are no longer generated. Without the index of the previous
+     * generation, no files are deleted.
+     */
+    private void indexGeneratedFiles(GradleXtextProjectConfig projectConfig,
+            Map<String, GeneratedFiles.Owner> generatedFiles) {
+        if (outputIndex == null) {
+            return;
+        }
+        GenerationIndex index = GenerationIndex.of(generatedFiles, projectConfig);
+        if (incremental) {
+            GenerationIndex previous = GenerationIndex.read(outputIndex);
+            if (previous != null) {
+                previous.deleteStale(index, projectConfig.getGeneratedDirectories(), projectConfig.getGeneratedFiles());
+            }
+        }
+        index.write(outputIndex);
+    }
+
+    private List<BundleProjectConfig> getBundles() {
+        List<BundleProjectConfig> bundles = new ArrayList<>();
+        for (SubProjectConfig project : getConfiguration().getProject().getAllProjects()) {
+            bundles.add(project instanceof BundleProjectConfig && project.isEnabled() ? (BundleProjectConfig) project
+                    : null);
+        }
+        return bundles;
+    }
+
+    private void handleException(Exception e, Issues issues) {
+        // CompositeGeneratorException is package-private
+        if (COMPOSITE_GENERATOR_EXCEPTION.equals(e.getClass().getName())) {
+            try {
+                Method getExceptions = e.getClass().getMethod("getExceptions");
+                getExceptions.setAccessible(true);
+                for (Object exception : (Iterable<?>) getExceptions.invoke(e)) {
+                    handleException((Exception) exception, issues);
+                }
+                return;
+            } catch (ReflectiveOperationException reflectionException) {
+                e.addSuppressed(reflectionException);
+            }
+        }
+        issues.addError(this, "GeneratorException: ", null, e, null);
+    }
+
+    /**
+     * Replaces the generator by a copy of its configuration when it is
+     * serialized, e.g. by the configuration cache, since the generator's
+     * components are not serializable.
+     */
+    private Object writeReplace() {
+        return new SerializedGenerator(XtextGeneratorSnapshot.of(this));
+    }
+
+    /**
+     * The serialized form of a {@link PartitionedXtextGenerator}, which is
+     * restored from the copy of its configuration.
+     */
+    private static final class SerializedGenerator implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final XtextGeneratorSnapshot snapshot;
+
+        SerializedGenerator(XtextGeneratorSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private Object readResolve() {
+            return snapshot.restore(PartitionedXtextGenerator.class);
+        }
+    }
+
+    /**
+     * The files which were generated and the manifest and {@code plugin.xml}
+     * entries which were added to the bundles, indexed by the position of the
+     * bundle in {@link XtextProjectConfig#getAllProjects()}.
+     */
+    private static final class Contributions implements Serializable {
+
+        private static final long serialVersionUID = 3L;
+
+        private final Map<String, GeneratedFiles.Owner> generatedFiles = new LinkedHashMap<>();
+        private final Map<Integer, Set<String>> exportedPackages = new HashMap<>();
+        private final Map<Integer, Set<String>> requiredBundles = new HashMap<>();
+        private final Map<Integer, Set<String>> importedPackages = new HashMap<>();
+        private final Map<Integer, List<String>> pluginXmlEntries = new HashMap<>();
+
+        static Contributions record(List<BundleProjectConfig> bundles) {
+            Contributions contributions = new Contributions();
+            for (int i = 0; i < bundles.size(); i++) {
+                BundleProjectConfig bundle = bundles.get(i);
+                ManifestAccess manifest = bundle == null ? null : bundle.getManifest();
+                if (manifest != null) {
+                    contributions.exportedPackages.put(i, new LinkedHashSet<>(manifest.getExportedPackages()));
+                    contributions.requiredBundles.put(i, new LinkedHashSet<>(manifest.getRequiredBundles()));
+                    contributions.importedPackages.put(i, new LinkedHashSet<>(manifest.getImportedPackages()));
+                }
+                PluginXmlAccess pluginXml = bundle == null ? null : bundle.getPluginXml();
+                if (pluginXml != null) {
+                    List<String> entries = new ArrayList<>();
+                    for (CharSequence entry : pluginXml.getEntries()) {
+                        entries.add(entry.toString());
+                    }
+                    contributions.pluginXmlEntries.put(i, entries);
+                }
+            }
+            return contributions;
+        }
+
+        Contributions without(Contributions initial) {
+            Contributions contributions = new Contributions();
+            without(exportedPackages, initial.exportedPackages, contributions.exportedPackages);
+            without(requiredBundles, initial.requiredBundles, contributions.requiredBundles);
+            without(importedPackages, initial.importedPackages, contributions.importedPackages);
+            pluginXmlEntries.forEach((bundle, entries) -> {
+                List<String> initialEntries = initial.pluginXmlEntries.get(bundle);
+                int start = initialEntries == null ? 0 : initialEntries.size();
+                contributions.pluginXmlEntries.put(bundle, new ArrayList<>(entries.subList(start, entries.size())));
+            });
+            return contributions;
+        }
+
+        private static void without(Map<Integer, Set<String>> values, Map<Integer, Set<String>> initial,
+                Map<Integer, Set<String>> result) {
+            values.forEach((bundle, set) -> {
+                Set<String> difference = new LinkedHashSet<>(set);
+                difference.removeAll(initial.getOrDefault(bundle, new LinkedHashSet<>()));
+                result.put(bundle, difference);
+            });
+        }
+
+        void reset(List<BundleProjectConfig> bundles) {
+            for (int i = 0; i < bundles.size(); i++) {
+                BundleProjectConfig bundle = bundles.get(i);
+                ManifestAccess manifest = bundle == null ? null : bundle.getManifest();
+                if (manifest != null) {
+                    reset(manifest.getExportedPackages(), exportedPackages.get(i));
+                    reset(manifest.getRequiredBundles(), requiredBundles.get(i));
+                    reset(manifest.getImportedPackages(), importedPackages.get(i));
+                }
+                PluginXmlAccess pluginXml = bundle == null ? null : bundle.getPluginXml();
+                if (pluginXml != null) {
+                    List<String> entries = pluginXmlEntries.get(i);
+                    pluginXml.getEntries().subList(entries == null ? 0 : entries.size(), pluginXml.getEntries().size())
+                            .clear();
+                }
+            }
+        }
+
+        private static void reset(Set<String> values, Set<String> initial) {
+            values.clear();
+            if (initial != null) {
+                values.addAll(initial);
+            }
+        }
+
+        void apply(List<BundleProjectConfig> bundles) {
+            for (int i = 0; i < bundles.size(); i++) {
+                BundleProjectConfig bundle = bundles.get(i);
+                ManifestAccess manifest = bundle == null ? null : bundle.getManifest();
+                if (manifest != null) {
+                    manifest.getExportedPackages().addAll(exportedPackages.getOrDefault(i, new LinkedHashSet<>()));
+                    manifest.getRequiredBundles().addAll(requiredBundles.getOrDefault(i, new LinkedHashSet<>()));
+                    manifest.getImportedPackages().addAll(importedPackages.getOrDefault(i, new LinkedHashSet<>()));
+                }
+                PluginXmlAccess pluginXml = bundle == null ? null : bundle.getPluginXml();
+                if (pluginXml != null) {
+                    pluginXml.getEntries().addAll(pluginXmlEntries.getOrDefault(i, new ArrayList<>()));
+                }
+            }
+        }
+
+        void write(File file) {
+            try {
+                Files.createDirectories(file.getParentFile().toPath());
+                try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
+                    out.writeObject(this);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static Contributions read(File file) {
+            if (!file.isFile()) {
+                throw new GradleException("Missing generator contributions " + file
+                        + "; the languages must be generated again");
+            }
+            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file.toPath()))) {
+                return (Contributions) in.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new GradleException("Cannot read generator contributions " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Reads and writes the Java properties format. Unlike
+ * {@link java.util.Properties#store(java.io.Writer, String)}, the properties are
+ * written sorted by key and without a timestamp comment, so that the same
+ * properties always produce the same bytes.
+ *
+ * <p>
+ * Properties are encoded in ISO-8859-1, with characters outside of printable
+ * ASCII written as {@code \}{@code uXXXX} escapes.
+ * </p>
+ */
+final class PropertiesCodec {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private PropertiesCodec() {
+    }
+
+    /**
+     * Decodes the properties, sorted by key.
+     *
+     * @param content the encoded properties
+     * @return the properties
+     */
+    static Map<String, String> decode(byte[] content) {
+        String text = new String(content, StandardCharsets.ISO_8859_1);
+        Map<String, String> properties = new TreeMap<>();
+        StringBuilder line = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            i = readLogicalLine(text, i, line);
+            int start = skipWhitespace(line, 0);
+            if (start == line.length() || isComment(line)) {
+                continue;
+            }
+            int keyEnd = start;
+            while (keyEnd < line.length() && !isSeparator(line.charAt(keyEnd))) {
+                keyEnd += line.charAt(keyEnd) == '\\' ? 2 : 1;
+            }
+            keyEnd = Math.min(keyEnd, line.length());
+            int valueStart = skipWhitespace(line, keyEnd);
+            if (valueStart < line.length() && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')) {
+                valueStart = skipWhitespace(line, valueStart + 1);
+            }
+            properties.put(unescape(line, start, keyEnd), unescape(line, valueStart, line.length()));
+        }
+        return properties;
+    }
+
+    /**
+     * Encodes the properties sorted by key, one property per line.
+     *
+     * @param properties the properties
+     * @return the encoded properties
+     */
+    static byte[] encode(Map<String, String> properties) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> property : new TreeMap<>(properties).entrySet()) {
+            escape(text, property.getKey(), true);
+            text.append('=');
+            escape(text, property.getValue(), false);
+            text.append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static int readLogicalLine(String text, int start, StringBuilder line) {
+        line.setLength(0);
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i++);
+            if (c == '\r' || c == '\n') {
+                if (c == '\r' && i < text.length() && text.charAt(i) == '\n') {
+                    i++;
+                }
+                if (isComment(line) || !endsWithContinuation(line)) {
+                    break;
+                }
+                line.setLength(line.length() - 1);
+                while (i < text.length() && isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                continue;
+            }
+            line.append(c);
+        }
+        if (!isComment(line) && endsWithContinuation(line)) {
+            line.setLength(line.length() - 1);
+        }
+        return i;
+    }
+
+    private static boolean isComment(CharSequence line) {
+        int start = skipWhitespace(line, 0);
+        return start < line.length() && (line.charAt(start) == '#' || line.charAt(start) == '!');
+    }
+
+    private static boolean endsWithContinuation(CharSequence line) {
+        int backslashes = 0;
+        for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private static int skipWhitespace(CharSequence line, int start) {
+        int i = start;
+        while (i < line.length() && isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '=' || c == ':' || isWhitespace(c);
+    }
+
+    private static String unescape(CharSequence line, int start, int end) {
+        StringBuilder result = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c != '\\' || i + 1 == end) {
+                result.append(c);
+                continue;
+            }
+            c = line.charAt(++i);
+            switch (c) {
+            case 't':
+                result.append('\t');
+                break;
+            case 'n':
+                result.append('\n');
+                break;
+            case 'r':
+                result.append('\r');
+                break;
+            case 'f':
+                result.append('\f');
+                break;
+            case 'u':
+                if (i + 4 >= end) {
+                    throw new GradleException("Malformed \\uXXXX escape in properties: " + line);
+                }
+                try {
+                    result.append((char) Integer.parseInt(line.subSequence(i + 1, i + 5).toString(), 16));
+                } catch (NumberFormatException e) {
+                    throw new GradleException("Malformed \\uXXXX escape in properties: " + line, e);
+                }
+                i += 4;
+                break;
+            default:
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static void escape(StringBuilder text, String value, boolean key) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case ' ':
+                if (key || i == 0) {
+                    text.append('\\');
+                }
+                text.append(c);
+                break;
+            case '\t':
+                text.append("\\t");
+                break;
+            case '\n':
+                text.append("\\n");
+                break;
+            case '\r':
+                text.append("\\r");
+                break;
+            case '\f':
+                text.append("\\f");
+                break;
+            case '\\':
+            case '=':
+            case ':':
+            case '#':
+            case '!':
+                text.append('\\').append(c);
+                break;
+            default:
+                if (c < 0x20 || c > 0x7e) {
+                    text.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                            .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * The previous versions of the generated files which a generation deletes or
+ * overwrites. A file which the generation produces again with the same content
+ * is replaced by its previous version, so that it keeps its timestamp even
+ * though the cleaner deleted it or a fragment wrote intermediate content to
+ * it.
+ *
+ * <p>
+ * The files are kept on disk below a directory for each generated directory,
+ * so that the workers of a generation share them.
+ * </p>
+ */
+final class RetainedFiles {
+
+    private final File directory;
+    private final Map<String, Path> roots = new LinkedHashMap<>();
+
+    /**
+     * Creates the retained files of the generated directories.
+     *
+     * @param directory the directory where the files are retained
+     * @param roots     the generated directories
+     */
+    RetainedFiles(File directory, Collection<File> roots) {
+        this.directory = directory;
+        for (File root : roots) {
+            String path = root.getAbsolutePath();
+            this.roots.put(new File(path).getName() + '-' + Integer.toHexString(path.hashCode()),
+                    root.getAbsoluteFile().toPath());
+        }
+    }
+
+    /**
+     * Retains all files in the generated directories, e.g. before the cleaner
+     * deletes them. The files are linked if the file system supports it.
+     */
+    void retainAll() {
+        for (Path root : roots.values()) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        Path retained = retained(file);
+                        if (retained != null && !Files.exists(retained)) {
+                            Files.createDirectories(retained.getParent());
+                            try {
+                                Files.createLink(retained, file);
+                            } catch (IOException | UnsupportedOperationException e) {
+                                Files.copy(file, retained, StandardCopyOption.COPY_ATTRIBUTES);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Retains a file which is about to be overwritten, unless a previous version
+     * of it is already retained.
+     *
+     * @param file the file
+     */
+    void retain(File file) {
+        Path path = file.toPath();
+        Path retained = retained(path);
+        if (retained == null || !Files.isRegularFile(path)) {
+            return;
+        }
+        try {
+            if (!Files.exists(retained)) {
+                Files.createDirectories(retained.getParent());
+                Files.move(path, retained);
+            } else if (Files.isSameFile(path, retained)) {
+                // the file is linked, so it must not be overwritten in place
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces a file by its previous version if the previous version has the
+     * given content.
+     *
+     * @param file    the file
+     * @param content the content the file is generated with
+     * @return whether the file was restored
+     */
+    boolean restore(File file, byte[] content) {
+        Path path = file.toPath();
+        Path retained = retained(path);
+        try {
+            if (retained == null || !isSameContent(retained, content)) {
+                return false;
+            }
+            Files.createDirectories(path.getParent());
+            Files.move(retained, path, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the files which were generated again with the same content by
+     * their previous versions and deletes the other retained files.
+     *
+     * @return the number of retained files which were not generated again
+     */
+    int restoreAll() {
+        int deleted = 0;
+        for (Map.Entry<String, Path> root : roots.entrySet()) {
+            Path retainedRoot = new File(directory, root.getKey()).toPath();
+            if (!Files.isDirectory(retainedRoot)) {
+                continue;
+            }
+            int[] missing = new int[1];
+            try {
+                Files.walkFileTree(retainedRoot, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path retained, BasicFileAttributes attrs) throws IOException {
+                        Path file = root.getValue().resolve(retainedRoot.relativize(retained).toString());
+                        if (!Files.exists(file)) {
+                            missing[0]++;
+                        } else if (!Files.isSameFile(file, retained) && Files.size(file) == attrs.size()
+                                && Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(retained))) {
+                            Files.move(retained, file, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            deleted += missing[0];
+        }
+        delete();
+        return deleted;
+    }
+
+    /**
+     * Deletes the retained files.
+     */
+    void delete() {
+        if (!directory.exists()) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns where the previous version of a file is retained, or {@code null}
+     * if the file is not in a generated directory. The innermost generated
+     * directory counts, since e.g. the ecore model directory may be inside a
+     * resource directory.
+     */
+    private Path retained(Path file) {
+        Path absolute = file.toAbsolutePath();
+        Map.Entry<String, Path> innermost = null;
+        for (Map.Entry<String, Path> root : roots.entrySet()) {
+            if (absolute.startsWith(root.getValue()) && !absolute.equals(root.getValue())
+                    && (innermost == null || root.getValue().getNameCount() > innermost.getValue().getNameCount())) {
+                innermost = root;
+            }
+        }
+        return innermost == null ? null
+                : new File(directory, innermost.getKey()).toPath()
+                        .resolve(innermost.getValue().relativize(absolute).toString());
+    }
+
+    private static boolean isSameContent(Path file, byte[] content) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != content.length) {
+            return false;
+        }
+        return Arrays.equals(Files.readAllBytes(file), content);
+    }
+}
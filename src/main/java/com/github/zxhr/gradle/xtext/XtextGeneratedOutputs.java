@@ -0,0 +1,233 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurablePublishArtifact;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+
+import com.github.zxhr.gradle.xtext.model.project.IBundleGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IRuntimeGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.ISubGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IWebGradleProjectConfig;
+
+/**
+ * The directories generated into a sub-project by the root project's
+ * {@link GenerateMwe2} task, which the root project publishes as variants of a
+ * consumable configuration per sub-project plugin, and which the sub-project
+ * resolves through a project dependency on the root project. The sub-project
+ * thereby depends on the generation task without accessing the root project's
+ * model. The Xtext version of the root project is an attribute of the
+ * variants.
+ */
+final class XtextGeneratedOutputs {
+
+    /**
+     * The {@link Usage} of the generated directories.
+     */
+    static final String USAGE = "xtext-generated";
+
+    /**
+     * The extension name of the sub-project plugin the directories are generated
+     * for.
+     */
+    static final Attribute<String> PROJECT_ATTRIBUTE = Attribute.of("com.github.zxhr.xtext.project", String.class);
+
+    /**
+     * Whether the directories contain the {@link #JAVA Java sources} or the
+     * {@link #RESOURCES resources}.
+     */
+    static final Attribute<String> CONTENT_ATTRIBUTE = Attribute.of("com.github.zxhr.xtext.content", String.class);
+
+    /**
+     * The Xtext version of the root project.
+     */
+    static final Attribute<String> XTEXT_VERSION_ATTRIBUTE = Attribute.of("com.github.zxhr.xtext.version",
+            String.class);
+
+    static final String JAVA = "java";
+    static final String RESOURCES = "resources";
+
+    private final FileCollection java;
+    private final FileCollection resources;
+    private final Provider<String> xtextVersion;
+
+    private XtextGeneratedOutputs(FileCollection java, FileCollection resources, Provider<String> xtextVersion) {
+        this.java = java;
+        this.resources = resources;
+        this.xtextVersion = xtextVersion;
+    }
+
+    /**
+     * Returns the generated Java source directories.
+     *
+     * @return the generated Java source directories
+     */
+    FileCollection getJava() {
+        return java;
+    }
+
+    /**
+     * Returns the generated resource directories.
+     *
+     * @return the generated resource directories
+     */
+    FileCollection getResources() {
+        return resources;
+    }
+
+    /**
+     * Returns the Xtext version of the root project.
+     *
+     * @return the Xtext version of the root project
+     */
+    Provider<String> getXtextVersion() {
+        return xtextVersion;
+    }
+
+    /**
+     * Creates the consumable configuration of the root project publishing the
+     * directories generated for a sub-project plugin.
+     *
+     * @param rootProject   the root project
+     * @param extensionName the extension name of the sub-project plugin
+     * @param configClass   the configuration class of the sub-project plugin
+     * @param subProject    the configuration of the sub-project
+     * @param generateMwe2  the task generating the directories
+     * @param xtextVersion  the Xtext version of the root project, which is
+     *                      published once the root project is evaluated
+     */
+    static void publish(Project rootProject, String extensionName,
+            Class<? extends ISubGradleProjectConfig> configClass, Provider<XtextSubProject> subProject,
+            TaskProvider<GenerateMwe2> generateMwe2, Provider<String> xtextVersion) {
+        Configuration published = rootProject.getConfigurations().create(extensionName + "Elements", configuration -> {
+            configuration.setDescription("The directories generated for the " + extensionName + " project.");
+            configuration.setVisible(false);
+            configuration.setCanBeResolved(false);
+            attributes(rootProject.getObjects(), configuration.getAttributes(), extensionName);
+            configuration.getAttributes().attribute(CONTENT_ATTRIBUTE, JAVA);
+            for (Provider<File> directory : directories(configClass, subProject, JAVA)) {
+                configuration.getOutgoing().artifact(directory, artifact -> configure(artifact, generateMwe2));
+            }
+            configuration.getOutgoing().getVariants().create(RESOURCES, variant -> {
+                variant.attributes(attributes -> attributes.attribute(CONTENT_ATTRIBUTE, RESOURCES));
+                for (Provider<File> directory : directories(configClass, subProject, RESOURCES)) {
+                    variant.artifact(directory, artifact -> configure(artifact, generateMwe2));
+                }
+            });
+        });
+        rootProject.afterEvaluate(__ -> {
+            published.getAttributes().attribute(XTEXT_VERSION_ATTRIBUTE, xtextVersion.get());
+        });
+    }
+
+    /**
+     * Returns the directories generated for a sub-project, resolved from the
+     * configuration published by its root project. If the sub-project is the
+     * root project itself, the directories depend on the generation task
+     * directly, and the Xtext version is read from the root extension.
+     *
+     * @param project       the sub-project
+     * @param extensionName the extension name of the sub-project plugin
+     * @param configClass   the configuration class of the sub-project plugin
+     * @param config        the configuration of the sub-project
+     * @param registry      the registry of the project's build
+     * @return the generated directories
+     */
+    static XtextGeneratedOutputs consume(Project project, String extensionName,
+            Class<? extends ISubGradleProjectConfig> configClass, ISubGradleProjectConfig config,
+            XtextProjectRegistry registry) {
+        Configuration generated = project.getConfigurations().create(extensionName + "Generated", configuration -> {
+            configuration.setDescription("The directories generated for the " + extensionName + " project.");
+            configuration.setVisible(false);
+            configuration.setCanBeConsumed(false);
+            attributes(project.getObjects(), configuration.getAttributes(), extensionName);
+            configuration.withDependencies(dependencies -> {
+                String rootPath = registry.getRootPath(project);
+                if (!rootPath.equals(project.getPath())) {
+                    dependencies.add(project.getDependencies().project(Collections.singletonMap("path", rootPath)));
+                }
+            });
+        });
+        Provider<XtextSubProject> subProject = project.provider(() -> XtextSubProject.of(config));
+        Provider<String> xtextVersion = project.provider(() -> {
+            if (registry.getRootPath(project).equals(project.getPath())) {
+                return project.getExtensions().getByType(XtextRootProjectExtension.class).getXtextVersion()
+                        .getOrNull();
+            }
+            for (ResolvedArtifactResult artifact : view(generated, JAVA).getArtifacts()) {
+                return artifact.getVariant().getAttributes().getAttribute(XTEXT_VERSION_ATTRIBUTE);
+            }
+            return null;
+        });
+        return new XtextGeneratedOutputs(files(project, generated, configClass, subProject, registry, JAVA),
+                files(project, generated, configClass, subProject, registry, RESOURCES), xtextVersion);
+    }
+
+    private static FileCollection files(Project project, Configuration generated,
+            Class<? extends ISubGradleProjectConfig> configClass, Provider<XtextSubProject> subProject,
+            XtextProjectRegistry registry, String content) {
+        FileCollection resolved = view(generated, content).getFiles();
+        return project.files((Callable<FileCollection>) () -> {
+            if (registry.getRootPath(project).equals(project.getPath())) {
+                return project.files(directories(configClass, subProject, content))
+                        .builtBy(XtextRootProjectPlugin.GENERATE_MWE2_TASK_NAME);
+            }
+            return resolved;
+        });
+    }
+
+    private static ArtifactView view(Configuration generated, String content) {
+        return generated.getIncoming()
+                .artifactView(view -> view.attributes(attributes -> attributes.attribute(CONTENT_ATTRIBUTE, content)));
+    }
+
+    private static void attributes(ObjectFactory objects, AttributeContainer attributes, String extensionName) {
+        attributes.attribute(Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, USAGE));
+        attributes.attribute(PROJECT_ATTRIBUTE, extensionName);
+    }
+
+    private static void configure(ConfigurablePublishArtifact artifact, TaskProvider<GenerateMwe2> generateMwe2) {
+        artifact.setType(ArtifactTypeDefinition.DIRECTORY_TYPE);
+        artifact.builtBy(generateMwe2);
+    }
+
+    private static List<Provider<File>> directories(Class<? extends ISubGradleProjectConfig> configClass,
+            Provider<XtextSubProject> subProject, String content) {
+        List<Provider<File>> directories = new ArrayList<>();
+        if (JAVA.equals(content)) {
+            directories.add(location(subProject, XtextSubProject.SRC_GEN));
+            return directories;
+        }
+        directories.add(location(subProject, XtextSubProject.RESOURCES_GEN));
+        directories.add(location(subProject, XtextSubProject.META_INF).map(File::getParentFile));
+        if (IBundleGradleProjectConfig.class.isAssignableFrom(configClass)) {
+            directories.add(location(subProject, XtextSubProject.PLUGIN_XML).map(File::getParentFile));
+        }
+        if (IRuntimeGradleProjectConfig.class.isAssignableFrom(configClass)) {
+            directories.add(location(subProject, XtextSubProject.ECORE_MODEL).map(File::getParentFile));
+        }
+        if (IWebGradleProjectConfig.class.isAssignableFrom(configClass)) {
+            directories.add(location(subProject, XtextSubProject.ASSETS).map(File::getParentFile));
+        }
+        return directories;
+    }
+
+    private static Provider<File> location(Provider<XtextSubProject> subProject, String location) {
+        return subProject.map(p -> p.getLocation(location));
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.zxhr.gradle.xtext;
+
+import org.eclipse.emf.mwe2.language.Mwe2StandaloneSetup;
+import org.eclipse.emf.mwe2.runtime.workflow.IWorkflowContext;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service through which the {@link GenerateMwe2} tasks of a build which
+ * run the generator in the Gradle daemon get their {@link IWorkflowContext}.
+ *
+ * <p>
+ * The service is only the per-build handle: the {@link Mwe2StandaloneSetup}
+ * injector is held by the {@link Mwe2InjectorCache} of the daemon, keyed by the
+ * Xtext version and the classpath hash, so it is reused by later builds until
+ * either of them changes.
+ * </p>
+ */
+public abstract class XtextGeneratorService implements BuildService<BuildServiceParameters.None> {
+
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "xtextGenerator";
+
+    /**
+     * Creates a new {@link IWorkflowContext} for running a workflow.
+     * 
+     * @return a new {@link IWorkflowContext}
+     */
+    public IWorkflowContext newWorkflowContext() {
+        return Mwe2InjectorCache.get().newWorkflowContext();
+    }
+}
@@ -0,0 +1,485 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.gradle.api.GradleException;
+
+/**
+ * A serializable copy of the configuration of an {@link XtextGenerator} which
+ * has not yet been initialized, which hands the generator to the workers of an
+ * isolated or parallel generation.
+ *
+ * <p>
+ * The snapshot records the field values of the generator's object graph (e.g.,
+ * the languages, their fragments, the code config and the project config) so
+ * that an equivalent generator can be {@link #restore(ClassLoader) restored}
+ * in another classloader or process. It is not an input of the task; the
+ * inputs are the {@link GeneratorProperties} declared by the configuration.
+ * </p>
+ */
+final class XtextGeneratorSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String DECORATED_SUFFIX = "_Decorated";
+
+    private final Node root;
+
+    private XtextGeneratorSnapshot(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a snapshot of the given generator's configuration.
+     *
+     * @param generator the generator, which must not be initialized yet
+     * @return the snapshot
+     */
+    static XtextGeneratorSnapshot of(XtextGenerator generator) {
+        return new XtextGeneratorSnapshot(new Capture().capture(generator));
+    }
+
+    /**
+     * Restores a new generator from this snapshot, loading the generator classes
+     * from the given classloader.
+     *
+     * @param classLoader the classloader for loading the generator classes
+     * @return the restored generator
+     */
+    XtextGenerator restore(ClassLoader classLoader) {
+        return (XtextGenerator) new Restore(classLoader).restore(root);
+    }
+
+    /**
+     * Restores a new generator of the given type from this snapshot, loading the
+     * generator classes from the type's classloader.
+     *
+     * @param type the generator type, which must be a subclass of the snapshot's
+     *             generator type
+     * @param <T>  the generator type
+     * @return the restored generator
+     */
+    <T extends XtextGenerator> T restore(Class<T> type) {
+        return type.cast(((ObjectNode) root).restore(new Restore(type.getClassLoader()), type));
+    }
+
+    private static Class<?> restoredClass(Class<?> type) {
+        while (type.getName().endsWith(DECORATED_SUFFIX) && type.getSuperclass() != null) {
+            type = type.getSuperclass();
+        }
+        return type;
+    }
+
+    private static boolean isFunction(Class<?> type) {
+        return type.isSynthetic() || type.isAnonymousClass() || type.getName().contains("$$Lambda");
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = restoredClass(type); c != null && c != Object.class; c = c.getSuperclass()) {
+            Field[] declared = c.getDeclaredFields();
+            Arrays.sort(declared, Comparator.comparing(Field::getName));
+            for (Field field : declared) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static String fieldKey(Field field) {
+        return field.getDeclaringClass().getName() + '#' + field.getName();
+    }
+
+    private static final class Capture {
+
+        private final Map<Object, Integer> ids = new IdentityHashMap<>();
+        private final Map<Class<?>, Object> defaults = new HashMap<>();
+        Node capture(Object value) {
+            if (value == null) {
+                return null;
+            }
+            Class<?> type = value.getClass();
+            if (value instanceof String || value instanceof Boolean || value instanceof Character
+                    || (value instanceof Number && type.getName().startsWith("java.lang."))) {
+                return new ValueNode(value);
+            }
+            if (value instanceof Enum) {
+                return new EnumNode(((Enum<?>) value).getDeclaringClass().getName(), ((Enum<?>) value).name());
+            }
+            if (value instanceof Class) {
+                return new ClassNode(((Class<?>) value).getName());
+            }
+            Integer id = ids.get(value);
+            if (id != null) {
+                return new ReferenceNode(id);
+            }
+            id = ids.size();
+            ids.put(value, id);
+            if (type.isArray()) {
+                List<Node> elements = new ArrayList<>();
+                for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                    elements.add(capture(Array.get(value, i)));
+                }
+                return new ArrayNode(id, type.getComponentType().getName(), elements);
+            }
+            if (value instanceof Collection) {
+                List<Node> elements = new ArrayList<>();
+                for (Object element : (Collection<?>) value) {
+                    elements.add(capture(element));
+                }
+                return new CollectionNode(id, type.getName(), value instanceof Set, elements);
+            }
+            if (value instanceof Map) {
+                List<Node> keys = new ArrayList<>();
+                List<Node> values = new ArrayList<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    keys.add(capture(entry.getKey()));
+                    values.add(capture(entry.getValue()));
+                }
+                return new MapNode(id, type.getName(), keys, values);
+            }
+            if (type.getName().startsWith("java.")) {
+                if (value instanceof Serializable) {
+                    return new SerializedNode(id, (Serializable) value);
+                }
+                throw new GradleException("Cannot snapshot " + type.getName() + " of the Xtext generator");
+            }
+            Map<String, Node> fieldValues = new LinkedHashMap<>();
+            for (Field field : fields(type)) {
+                Object fieldValue = get(field, value);
+                if (fieldValue != null && isFunction(fieldValue.getClass())) {
+                    Object defaultValue = get(field, getDefault(type));
+                    if (defaultValue == null || defaultValue.getClass() != fieldValue.getClass()) {
+                        throw new GradleException("Cannot snapshot the function assigned to "
+                                + field.getDeclaringClass().getName() + '.' + field.getName()
+                                + "; use a named class with a public no-arg constructor instead");
+                    }
+                    continue;
+                }
+                fieldValues.put(fieldKey(field), capture(fieldValue));
+            }
+            return new ObjectNode(id, restoredClass(type).getName(), fieldValues);
+        }
+
+        private Object getDefault(Class<?> type) {
+            return defaults.computeIfAbsent(restoredClass(type), Restore::instantiate);
+        }
+
+        private static Object get(Field field, Object instance) {
+            try {
+                return field.get(instance);
+            } catch (IllegalAccessException e) {
+                throw new GradleException("Cannot read " + field, e);
+            }
+        }
+    }
+
+    private static final class Restore {
+
+        private final ClassLoader classLoader;
+        private final Map<Integer, Object> instances = new HashMap<>();
+
+        Restore(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        Object restore(Node node) {
+            return node == null ? null : node.restore(this);
+        }
+
+        Class<?> load(String name) {
+            switch (name) {
+            case "boolean":
+                return boolean.class;
+            case "byte":
+                return byte.class;
+            case "char":
+                return char.class;
+            case "short":
+                return short.class;
+            case "int":
+                return int.class;
+            case "long":
+                return long.class;
+            case "float":
+                return float.class;
+            case "double":
+                return double.class;
+            default:
+                try {
+                    return Class.forName(name, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    throw new GradleException("Cannot load " + name + " for the Xtext generator", e);
+                }
+            }
+        }
+
+        static Object instantiate(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new GradleException("Cannot instantiate " + type.getName()
+                        + "; Xtext generator components must have a no-arg constructor", e);
+            }
+        }
+
+        Object register(int id, Object instance) {
+            instances.put(id, instance);
+            return instance;
+        }
+    }
+
+    private abstract static class Node implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        abstract Object restore(Restore restore);
+    }
+
+    private static final class ValueNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+
+        ValueNode(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            return value;
+        }
+    }
+
+    private static final class EnumNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final String name;
+
+        EnumNode(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Object restore(Restore restore) {
+            return Enum.valueOf((Class) restore.load(type), name);
+        }
+    }
+
+    private static final class ClassNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+
+        ClassNode(String name) {
+            this.name = name;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            return restore.load(name);
+        }
+    }
+
+    private static final class ReferenceNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+
+        ReferenceNode(int id) {
+            this.id = id;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            return restore.instances.get(id);
+        }
+    }
+
+    private static final class SerializedNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final Serializable value;
+
+        SerializedNode(int id, Serializable value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            return restore.register(id, value);
+        }
+    }
+
+    private static final class ArrayNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final String componentType;
+        private final List<Node> elements;
+
+        ArrayNode(int id, String componentType, List<Node> elements) {
+            this.id = id;
+            this.componentType = componentType;
+            this.elements = elements;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            Object array = restore.register(id, Array.newInstance(restore.load(componentType), elements.size()));
+            for (int i = 0; i < elements.size(); i++) {
+                Array.set(array, i, restore.restore(elements.get(i)));
+            }
+            return array;
+        }
+    }
+
+    private static final class CollectionNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final String type;
+        private final boolean set;
+        private final List<Node> elements;
+
+        CollectionNode(int id, String type, boolean set, List<Node> elements) {
+            this.id = id;
+            this.type = type;
+            this.set = set;
+            this.elements = elements;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object restore(Restore restore) {
+            Collection<Object> collection;
+            if (isInstantiable(type)) {
+                collection = (Collection<Object>) Restore.instantiate(restore.load(type));
+            } else if (set) {
+                collection = new LinkedHashSet<>();
+            } else {
+                collection = new ArrayList<>();
+            }
+            restore.register(id, collection);
+            for (Node element : elements) {
+                collection.add(restore.restore(element));
+            }
+            return collection;
+        }
+    }
+
+    private static final class MapNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final String type;
+        private final List<Node> keys;
+        private final List<Node> values;
+
+        MapNode(int id, String type, List<Node> keys, List<Node> values) {
+            this.id = id;
+            this.type = type;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object restore(Restore restore) {
+            Map<Object, Object> map = isInstantiable(type)
+                    ? (Map<Object, Object>) Restore.instantiate(restore.load(type))
+                    : new LinkedHashMap<>();
+            restore.register(id, map);
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(restore.restore(keys.get(i)), restore.restore(values.get(i)));
+            }
+            return map;
+        }
+    }
+
+    private static final class ObjectNode extends Node {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final String type;
+        private final Map<String, Node> fields;
+
+        ObjectNode(int id, String type, Map<String, Node> fields) {
+            this.id = id;
+            this.type = type;
+            this.fields = fields;
+        }
+
+        @Override
+        Object restore(Restore restore) {
+            return restore(restore, restore.load(type));
+        }
+
+        Object restore(Restore restore, Class<?> objectType) {
+            Object instance = restore.register(id, Restore.instantiate(objectType));
+            for (Field field : fields(objectType)) {
+                String key = fieldKey(field);
+                if (fields.containsKey(key)) {
+                    try {
+                        field.set(instance, restore.restore(fields.get(key)));
+                    } catch (IllegalAccessException e) {
+                        throw new GradleException("Cannot restore " + field, e);
+                    }
+                }
+            }
+            return instance;
+        }
+    }
+
+    private static boolean isInstantiable(String type) {
+        switch (type) {
+        case "java.util.ArrayList":
+        case "java.util.LinkedList":
+        case "java.util.HashSet":
+        case "java.util.LinkedHashSet":
+        case "java.util.TreeSet":
+        case "java.util.HashMap":
+        case "java.util.LinkedHashMap":
+        case "java.util.TreeMap":
+            return true;
+        default:
+            return false;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.xtext.xtext.generator.IXtextGeneratorFragment;
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AbstractAntlrGeneratorFragment2;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AntlrOptions;
+import org.eclipse.xtext.xtext.generator.parser.antlr.XtextAntlrGeneratorFragment2;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+
+/**
+ * Options of the runtime and content assist parsers generated for a language
+ * by the {@link XtextAntlrGeneratorFragment2}, analogous to
+ * {@link AntlrOptions}. Options which are not set keep the fragment's
+ * configuration.
+ *
+ * <p>
+ * The size of the generated parsers is recorded in the generation metrics, so
+ * that the effect of the options can be compared between generations.
+ * </p>
+ */
+public abstract class XtextParserOptions {
+
+    private static final Logger LOGGER = Logging.getLogger(XtextParserOptions.class);
+
+    /**
+     * Returns whether the parser backtracks when the lookahead does not
+     * determine an alternative. Backtracking parsers accept more grammars but are
+     * larger and slower.
+     *
+     * @return whether the parser backtracks
+     */
+    public abstract Property<Boolean> getBacktrack();
+
+    /**
+     * Returns whether the lexer backtracks.
+     *
+     * @return whether the lexer backtracks
+     */
+    public abstract Property<Boolean> getBacktrackLexer();
+
+    /**
+     * Returns whether the parser memoizes the results of backtracking, which
+     * trades memory for avoiding repeated backtracking. Only takes effect with
+     * {@link #getBacktrack() backtracking}.
+     *
+     * @return whether the parser memoizes
+     */
+    public abstract Property<Boolean> getMemoize();
+
+    /**
+     * Returns the fixed lookahead depth of the parser. A small fixed lookahead
+     * results in smaller lookahead decisions than ANTLR's unbounded default.
+     * Must be at least {@code 1}.
+     *
+     * @return the lookahead depth
+     */
+    public abstract Property<Integer> getLookahead();
+
+    /**
+     * Returns whether the generated parsers and lexers are split, so that their
+     * classes and methods stay below the limits of the JVM and load faster.
+     *
+     * @return whether the parsers are split
+     */
+    public abstract Property<Boolean> getClassSplitting();
+
+    /**
+     * Returns the maximum number of fields of the split parser classes. Requires
+     * {@link #getClassSplitting() class splitting}. Must be at least {@code 1}.
+     *
+     * @return the maximum number of fields per class
+     */
+    public abstract Property<Integer> getFieldsPerClass();
+
+    /**
+     * Returns the maximum number of methods of the split parser classes.
+     * Requires {@link #getClassSplitting() class splitting}. Must be at least
+     * {@code 1}.
+     *
+     * @return the maximum number of methods per class
+     */
+    public abstract Property<Integer> getMethodsPerClass();
+
+    /**
+     * Returns the maximum number of cases of the special state switches of the
+     * split lexers. Requires {@link #getClassSplitting() class splitting}. Must
+     * be at least {@code 1}.
+     *
+     * @return the maximum number of cases per special state switch
+     */
+    public abstract Property<Integer> getCasesPerSpecialStateSwitch();
+
+    /**
+     * Returns whether rules which cannot be reached from the entry rule are left
+     * out of the generated parsers.
+     *
+     * @return whether unused rules are skipped
+     */
+    public abstract Property<Boolean> getSkipUnusedRules();
+
+    /**
+     * Returns whether the generated parsers are post-processed to remove
+     * redundant code, such as unused bit sets.
+     *
+     * @return whether the code quality of the parsers is optimized
+     */
+    public abstract Property<Boolean> getOptimizeCodeQuality();
+
+    /**
+     * Returns whether all comments are removed from the generated parsers.
+     *
+     * @return whether comments are stripped
+     */
+    public abstract Property<Boolean> getStripAllComments();
+
+    /**
+     * Validates the options.
+     *
+     * @param language the name of the language the options belong to
+     * @throws GradleException if an option is invalid or has no effect
+     */
+    void validate(String language) {
+        requirePositive(language, "lookahead", getLookahead());
+        requirePositive(language, "fieldsPerClass", getFieldsPerClass());
+        requirePositive(language, "methodsPerClass", getMethodsPerClass());
+        requirePositive(language, "casesPerSpecialStateSwitch", getCasesPerSpecialStateSwitch());
+        if (!getClassSplitting().getOrElse(false) && (getFieldsPerClass().isPresent()
+                || getMethodsPerClass().isPresent() || getCasesPerSpecialStateSwitch().isPresent())) {
+            throw new GradleException("The parser options of " + language
+                    + " limit the size of split classes, but classSplitting is not enabled");
+        }
+        if (getMemoize().getOrElse(false) && !getBacktrack().getOrElse(false)) {
+            LOGGER.warn("The parser options of {} enable memoize without backtrack, which has no effect", language);
+        }
+    }
+
+    private static void requirePositive(String language, String name, Property<Integer> option) {
+        if (option.isPresent() && option.get() < 1) {
+            throw new GradleException("The parser option " + name + " of " + language + " must be at least 1 but was "
+                    + option.get());
+        }
+    }
+
+    /**
+     * Returns the ANTLR parser fragments of a language: its configured fragments
+     * and the parser generator of a {@link GradleStandardLanguage}, which the
+     * language only adds to its fragments when it is initialized.
+     *
+     * @param language the language
+     * @return the ANTLR parser fragments of the language
+     */
+    static List<AbstractAntlrGeneratorFragment2> parserFragments(XtextGeneratorLanguage language) {
+        List<AbstractAntlrGeneratorFragment2> fragments = new ArrayList<>();
+        for (IXtextGeneratorFragment fragment : PartitionedXtextGenerator.getFragments(language)) {
+            if (fragment instanceof AbstractAntlrGeneratorFragment2) {
+                fragments.add((AbstractAntlrGeneratorFragment2) fragment);
+            }
+        }
+        if (language instanceof GradleStandardLanguage) {
+            AbstractAntlrGeneratorFragment2 parserGenerator = ((GradleStandardLanguage) language).getParserGenerator();
+            if (parserGenerator != null && !fragments.contains(parserGenerator)) {
+                fragments.add(parserGenerator);
+            }
+        }
+        return fragments;
+    }
+
+    /**
+     * Sets the options which are set on the ANTLR options of a parser fragment.
+     *
+     * @param options the ANTLR options
+     */
+    void applyTo(AntlrOptions options) {
+        if (getBacktrack().isPresent()) {
+            options.setBacktrack(getBacktrack().get());
+        }
+        if (getBacktrackLexer().isPresent()) {
+            options.setBacktrackLexer(getBacktrackLexer().get());
+        }
+        if (getMemoize().isPresent()) {
+            options.setMemoize(getMemoize().get());
+        }
+        if (getLookahead().isPresent()) {
+            options.setK(getLookahead().get());
+        }
+        if (getClassSplitting().isPresent()) {
+            options.setClassSplitting(getClassSplitting().get());
+        }
+        if (getFieldsPerClass().isPresent()) {
+            options.setFieldsPerClass(getFieldsPerClass().get().toString());
+        }
+        if (getMethodsPerClass().isPresent()) {
+            options.setMethodsPerClass(getMethodsPerClass().get().toString());
+        }
+        if (getCasesPerSpecialStateSwitch().isPresent()) {
+            options.setCasesPerSpecialStateSwitch(getCasesPerSpecialStateSwitch().get().toString());
+        }
+        if (getSkipUnusedRules().isPresent()) {
+            options.setSkipUnusedRules(getSkipUnusedRules().get());
+        }
+        if (getOptimizeCodeQuality().isPresent()) {
+            options.setOptimizeCodeQuality(getOptimizeCodeQuality().get());
+        }
+        if (getStripAllComments().isPresent()) {
+            options.setStripAllComments(getStripAllComments().get());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service through which the {@link XtextRootProjectPlugin} and the Xtext
+ * sub-project plugins find each other. It only records immutable values, the
+ * paths of the projects applying the plugins and of the root projects'
+ * {@link GenerateMwe2} tasks; their configuration and generated
+ * directories are exchanged through the variants the projects publish, so
+ * that no project reads or changes the model of another project while it is
+ * configured.
+ *
+ * <p>
+ * A sub-project belongs to the nearest root project which is the project
+ * itself or one of its parents. The plugins register their projects when they
+ * are applied and only query the other projects lazily, so projects can be
+ * configured in any order.
+ * </p>
+ */
+public abstract class XtextProjectRegistry implements BuildService<BuildServiceParameters.None> {
+
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "xtextProjects";
+
+    // projects of included builds share the service, so keys include the build's root directory
+    private final Map<String, RootProject> roots = new HashMap<>();
+    private final List<SubProject> subProjects = new ArrayList<>();
+
+    /**
+     * Returns the registry of the project's build.
+     *
+     * @param project the project
+     * @return the registry
+     */
+    public static XtextProjectRegistry of(Project project) {
+        return project.getGradle().getSharedServices()
+                .registerIfAbsent(NAME, XtextProjectRegistry.class, spec -> {
+                }).get();
+    }
+
+    /**
+     * Registers a root project.
+     *
+     * @param project the root project
+     */
+    public synchronized void registerRoot(Project project) {
+        roots.put(key(project), new RootProject(project.getPath(),
+                project.absoluteProjectPath(XtextRootProjectPlugin.GENERATE_MWE2_TASK_NAME)));
+    }
+
+    /**
+     * Registers a sub-project.
+     *
+     * @param project       the sub-project
+     * @param extensionName the name of the sub-project plugin's extension
+     */
+    public synchronized void registerSubProject(Project project, String extensionName) {
+        subProjects.add(new SubProject(project.getRootDir().getAbsolutePath(), project.getPath(),
+                project.getDisplayName(), extensionName));
+    }
+
+    /**
+     * Returns the path of the nearest root project of a project.
+     *
+     * @param project the project
+     * @return the path of the root project
+     * @throws GradleException if neither the project nor its parents are
+     *                         registered as root project
+     */
+    public synchronized String getRootPath(Project project) {
+        return getRoot(project).path;
+    }
+
+    /**
+     * Returns the path of the {@link GenerateMwe2} task of the nearest root
+     * project of a project.
+     *
+     * @param project the project
+     * @return the path of the generation task
+     * @throws GradleException if neither the project nor its parents are
+     *                         registered as root project
+     */
+    public synchronized String getGenerateTaskPath(Project project) {
+        return getRoot(project).generateTaskPath;
+    }
+
+    /**
+     * Returns the path of the sub-project of a root project which applies the
+     * sub-project plugin with the given extension name.
+     *
+     * @param rootProject   the root project
+     * @param extensionName the name of the sub-project plugin's extension
+     * @return the path of the sub-project, or {@code null} if no sub-project of
+     *         the root project applies the plugin
+     * @throws GradleException if the plugin is applied to more than one
+     *                         sub-project of the root project
+     */
+    public synchronized String getSubProjectPath(Project rootProject, String extensionName) {
+        String rootKey = key(rootProject);
+        SubProject found = null;
+        for (SubProject subProject : subProjects) {
+            if (subProject.extensionName.equals(extensionName)
+                    && rootKey.equals(findRootKey(subProject.buildDir, subProject.path))) {
+                if (found != null) {
+                    throw new GradleException("The " + extensionName + " plugin is applied to both "
+                            + found.displayName + " and " + subProject.displayName + " of " + rootProject);
+                }
+                found = subProject;
+            }
+        }
+        return found == null ? null : found.path;
+    }
+
+    private RootProject getRoot(Project project) {
+        String rootKey = findRootKey(project.getRootDir().getAbsolutePath(), project.getPath());
+        if (rootKey == null) {
+            throw new GradleException("Neither " + project + " nor its parents apply "
+                    + XtextRootProjectPlugin.class.getName());
+        }
+        return roots.get(rootKey);
+    }
+
+    private String findRootKey(String buildDir, String path) {
+        for (String p = path; p != null; p = parentPath(p)) {
+            if (roots.containsKey(buildDir + p)) {
+                return buildDir + p;
+            }
+        }
+        return null;
+    }
+
+    private static String key(Project project) {
+        return project.getRootDir().getAbsolutePath() + project.getPath();
+    }
+
+    private static String parentPath(String path) {
+        if (path.equals(Project.PATH_SEPARATOR)) {
+            return null;
+        }
+        int separator = path.lastIndexOf(Project.PATH_SEPARATOR);
+        return separator == 0 ? Project.PATH_SEPARATOR : path.substring(0, separator);
+    }
+
+    private static final class RootProject {
+
+        private final String path;
+        private final String generateTaskPath;
+
+        RootProject(String path, String generateTaskPath) {
+            this.path = path;
+            this.generateTaskPath = generateTaskPath;
+        }
+    }
+
+    private static final class SubProject {
+
+        private final String buildDir;
+        private final String path;
+        private final String displayName;
+        private final String extensionName;
+
+        SubProject(String buildDir, String path, String displayName, String extensionName) {
+            this.buildDir = buildDir;
+            this.path = path;
+            this.displayName = displayName;
+            this.extensionName = extensionName;
+        }
+    }
+}
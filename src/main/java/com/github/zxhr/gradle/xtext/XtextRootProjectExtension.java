@@ -3,6 +3,8 @@
 import java.io.File;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -23,8 +25,9 @@
 import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
 import org.eclipse.xtext.xtext.generator.model.project.WebProjectConfig;
 import org.eclipse.xtext.xtext.generator.model.project.XtextProjectConfig;
+import org.eclipse.xtext.xtext.generator.parser.antlr.AbstractAntlrGeneratorFragment2;
 import org.gradle.api.Action;
-import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.GradleException;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
@@ -33,7 +36,6 @@
 
 import com.github.zxhr.gradle.xtext.model.project.IBundleGradleProjectConfig;
 import com.github.zxhr.gradle.xtext.model.project.IRuntimeGradleProjectConfig;
-import com.github.zxhr.gradle.xtext.model.project.ISubGradleProjectConfig;
 import com.github.zxhr.gradle.xtext.model.project.IWebGradleProjectConfig;
 
 /**
@@ -42,21 +44,26 @@
 public abstract class XtextRootProjectExtension {
 
     private final XtextGenerator generator;
+    private final GradleXtextProjectConfig projectConfig;
     private final Map<String, XtextGeneratorLanguage> languages = new HashMap<>();
+    private final Map<String, XtextParserOptions> parserOptions = new LinkedHashMap<>();
     private final Property<XtextGenerator> xtextGenerator;
+    private final Map<String, Provider<XtextSubProject>> subProjects = new HashMap<>();
     private TaskProvider<GenerateMwe2> generateMwe2Task;
 
     public XtextRootProjectExtension() {
-        this.generator = new XtextGenerator();
+        this.generator = new PartitionedXtextGenerator();
         this.xtextGenerator = getObjects().property(XtextGenerator.class);
         this.xtextGenerator.set(getProviders().provider(this::finalizeGenerator));
         this.xtextGenerator.finalizeValueOnRead();
         this.xtextGenerator.disallowChanges();
-        XtextProjectConfig projectConfigs = new XtextProjectConfig();
-        this.generator.getConfiguration().setProject(projectConfigs);
-        for (SubProjectConfig projectConfig : projectConfigs.getAllProjects()) {
-            projectConfig.setEnabled(false);
-            projectConfig.setOverwriteSrc(false);
+        GradleGeneratorModule configuration = new GradleGeneratorModule();
+        this.projectConfig = new GradleXtextProjectConfig();
+        configuration.setProject(projectConfig);
+        this.generator.setConfiguration(configuration);
+        for (SubProjectConfig subProjectConfig : projectConfig.getAllProjects()) {
+            subProjectConfig.setEnabled(false);
+            subProjectConfig.setOverwriteSrc(false);
         }
     }
 
@@ -78,9 +85,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getRuntime()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext runtime configuration
@@ -92,9 +100,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getRuntimeTest()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext runtime test configuration
@@ -106,9 +115,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getGenericIde()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext generic IDE configuration
@@ -120,9 +130,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getEclipsePlugin()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext Eclipse plugin configuration
@@ -134,9 +145,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getEclipsePluginTest()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext Eclipse plugin test configuration
@@ -148,9 +160,10 @@ public XtextRootProjectExtension() {
      * {@link IXtextProjectConfig#getWeb()}.
      * 
      * <p>
-     * The configuration may be {@link Provider#isPresent() unset} to
-     * {@link ISubProjectConfig#isEnabled() disable} generation of the
-     * configuration.
+     * If the configuration is {@link Provider#isPresent() unset}, the
+     * configuration published by the project applying the corresponding plugin
+     * is used; if no project applies the plugin, generation of the
+     * configuration is {@link ISubProjectConfig#isEnabled() disabled}.
      * </p>
      * 
      * @return the Xtext web configuration
@@ -176,6 +189,17 @@ public void setGenerateMwe2Task(TaskProvider<GenerateMwe2> generateMwe2Task) {
         this.generateMwe2Task = generateMwe2Task;
     }
 
+    /**
+     * Sets the configuration of the sub-project applying the sub-project plugin
+     * with the given extension name.
+     * 
+     * @param extensionName the name of the sub-project plugin's extension
+     * @param subProject    the configuration of the sub-project
+     */
+    void setSubProject(String extensionName, Provider<XtextSubProject> subProject) {
+        subProjects.put(extensionName, subProject);
+    }
+
     /**
      * Creates a {@link XtextGeneratorLanguage} with the given name if it does not
      * already exist and configures it with the given action.
@@ -194,7 +218,10 @@ public XtextGeneratorLanguage language(String name, Action<? super XtextGenerato
      * 
      * <p>
      * The language class must satisfy the conditions described by
-     * {@link ObjectFactory#newInstance(Class, Object...)}.
+     * {@link ObjectFactory#newInstance(Class, Object...)}. When a
+     * {@link StandardLanguage} is requested, a {@link GradleStandardLanguage} is
+     * created, which supports {@link #parserOptions(String, Action) parser
+     * options}.
      * </p>
      * 
      * @param name          language name
@@ -212,7 +239,8 @@ public <T extends XtextGeneratorLanguage> T language(String name, Class<T> langu
                 if (XtextGeneratorLanguage.class == languageClass) {
                     instance = (T) new XtextGeneratorLanguage();
                 } else if (StandardLanguage.class == languageClass) {
-                    instance = (T) new StandardLanguage();
+                    // exposes the parser generator to the parser options
+                    instance = (T) new GradleStandardLanguage();
                 } else {
                     instance = getObjects().newInstance(languageClass);
                 }
@@ -227,6 +255,29 @@ public <T extends XtextGeneratorLanguage> T language(String name, Class<T> langu
         return language;
     }
 
+    /**
+     * Configures the options of the ANTLR parsers generated for the language
+     * with the given name, such as backtracking, lookahead and class splitting.
+     * 
+     * <p>
+     * The options are validated and set on the language's ANTLR parser
+     * fragments when the generator is finalized, so the language may be created
+     * with {@link #language(String, Action)} before or after its options are
+     * configured. A language extending {@link StandardLanguage} must extend
+     * {@link GradleStandardLanguage} to have its parser options applied.
+     * </p>
+     * 
+     * @param name   language name
+     * @param action action to configure the parser options
+     * @return the parser options
+     */
+    public XtextParserOptions parserOptions(String name, Action<? super XtextParserOptions> action) {
+        XtextParserOptions options = parserOptions.computeIfAbsent(name,
+                __ -> getObjects().newInstance(XtextParserOptions.class));
+        action.execute(options);
+        return options;
+    }
+
     /**
      * Returns the {@link CodeConfig} for the project generation.
      * 
@@ -256,85 +307,127 @@ public Provider<XtextGenerator> getXtextGenerator() {
 
     private XtextGenerator finalizeGenerator() {
         XtextProjectConfig config = generator.getConfiguration().getProject();
-        IRuntimeGradleProjectConfig runtime = getRuntimeConfig().getOrNull();
+        XtextSubProject runtime = getSubProject(XtextRuntimePlugin.EXTENSION_NAME);
         if (runtime != null) {
             copyRuntime(runtime, config.getRuntime());
+            projectConfig.setBinaryEcoreModels(runtime.isBinaryEcoreModels());
         }
-        IBundleGradleProjectConfig runtimeTest = getRuntimeTestConfig().getOrNull();
+        XtextSubProject runtimeTest = getSubProject(XtextRuntimeTestPlugin.EXTENSION_NAME);
         if (runtimeTest != null) {
             copyBundle(runtimeTest, config.getRuntimeTest());
         }
-        IBundleGradleProjectConfig genericIde = getGenericIdeConfig().getOrNull();
+        XtextSubProject genericIde = getSubProject(XtextGenericIdePlugin.EXTENSION_NAME);
         if (genericIde != null) {
             copyBundle(genericIde, config.getGenericIde());
         }
-        IBundleGradleProjectConfig eclipsePlugin = getEclipsePluginConfig().getOrNull();
+        XtextSubProject eclipsePlugin = getSubProject(XtextEclipsePluginPlugin.EXTENSION_NAME);
         if (eclipsePlugin != null) {
             copyBundle(eclipsePlugin, config.getEclipsePlugin());
         }
-        IBundleGradleProjectConfig eclipsePluginTest = getEclipsePluginTestConfig().getOrNull();
+        XtextSubProject eclipsePluginTest = getSubProject(XtextEclipsePluginTestPlugin.EXTENSION_NAME);
         if (eclipsePluginTest != null) {
             copyBundle(eclipsePluginTest, config.getEclipsePluginTest());
         }
-        IWebGradleProjectConfig web = getWebConfig().getOrNull();
+        XtextSubProject web = getSubProject(XtextWebPlugin.EXTENSION_NAME);
         if (web != null) {
             copyWeb(web, config.getWeb());
         }
+        parserOptions.forEach(this::applyParserOptions);
         return generator;
     }
 
-    private void copyRuntime(IRuntimeGradleProjectConfig fromConfig, RuntimeProjectConfig toConfig) {
+    private XtextSubProject getSubProject(String extensionName) {
+        Provider<XtextSubProject> subProject = subProjects.get(extensionName);
+        return subProject == null ? null : subProject.getOrNull();
+    }
+
+    private void applyParserOptions(String name, XtextParserOptions options) {
+        XtextGeneratorLanguage language = languages.get(name);
+        if (language == null) {
+            throw new GradleException("Parser options are configured for the unknown language " + name);
+        }
+        options.validate(name);
+        if (language instanceof StandardLanguage && !(language instanceof GradleStandardLanguage)) {
+            throw new GradleException("Parser options are configured for " + name + ", whose language class "
+                    + language.getClass().getName() + " does not extend " + GradleStandardLanguage.class.getName());
+        }
+        List<AbstractAntlrGeneratorFragment2> fragments = XtextParserOptions.parserFragments(language);
+        if (fragments.isEmpty()) {
+            throw new GradleException("Parser options are configured for " + name
+                    + ", which has no ANTLR parser fragment");
+        }
+        for (AbstractAntlrGeneratorFragment2 fragment : fragments) {
+            options.applyTo(fragment.getOptions());
+        }
+    }
+
+    private void copyRuntime(XtextSubProject fromConfig, RuntimeProjectConfig toConfig) {
         copyBundle(fromConfig, toConfig);
-        if (fromConfig.getEcoreModelDirectory().isPresent()) {
-            toConfig.setEcoreModel(fromConfig.getEcoreModelDirectory().get().getAsFile().getAbsolutePath());
+        File ecoreModel = fromConfig.getLocation(XtextSubProject.ECORE_MODEL);
+        if (ecoreModel != null) {
+            toConfig.setEcoreModel(ecoreModel.getAbsolutePath());
         }
     }
 
-    private void copyBundle(IBundleGradleProjectConfig fromConfig, BundleProjectConfig toConfig) {
+    private void copyBundle(XtextSubProject fromConfig, BundleProjectConfig toConfig) {
         copyProject(fromConfig, toConfig);
-        if (fromConfig.getPluginXml().isPresent()) {
+        File pluginXml = fromConfig.getLocation(XtextSubProject.PLUGIN_XML);
+        if (pluginXml != null) {
             if (toConfig.getPluginXml() == null) {
                 toConfig.setPluginXml(new PluginXmlAccess());
             }
-            toConfig.getPluginXml()
-                    .setPath(relativeToRoot(fromConfig.getProject().getProjectDir(), fromConfig.getPluginXml()));
+            toConfig.getPluginXml().setPath(relativeToRoot(fromConfig.getRoot(), pluginXml));
         }
-        if (fromConfig.getManifest().isPresent()) {
+        File manifest = fromConfig.getLocation(XtextSubProject.MANIFEST);
+        File metaInf = fromConfig.getLocation(XtextSubProject.META_INF);
+        if (manifest != null && metaInf != null) {
             if (toConfig.getManifest() == null) {
                 toConfig.setManifest(new ManifestAccess());
             }
-            toConfig.getManifest().setPath(
-                    relativeToRoot(fromConfig.getMetaInfDirectory().get().getAsFile(), fromConfig.getManifest()));
+            toConfig.getManifest().setPath(relativeToRoot(metaInf, manifest));
         }
     }
 
-    private void copyWeb(IWebGradleProjectConfig fromConfig, WebProjectConfig toConfig) {
+    private void copyWeb(XtextSubProject fromConfig, WebProjectConfig toConfig) {
         copyProject(fromConfig, toConfig);
-        toConfig.setAssets(toConfig.getRootPath() + "/"
-                + relativeToRoot(fromConfig.getProject().getProjectDir(), fromConfig.getAssetsDirectory()));
+        File assets = fromConfig.getLocation(XtextSubProject.ASSETS);
+        if (assets != null) {
+            toConfig.setAssets(toConfig.getRootPath() + "/" + relativeToRoot(fromConfig.getRoot(), assets));
+        }
     }
 
-    private void copyProject(ISubGradleProjectConfig fromConfig, SubProjectConfig toConfig) {
+    private void copyProject(XtextSubProject fromConfig, SubProjectConfig toConfig) {
         toConfig.setEnabled(true);
         toConfig.setOverwriteSrc(false);
-        toConfig.setName(fromConfig.getProjectName().getOrElse(fromConfig.getProject().getName()));
-        toConfig.setRoot(fromConfig.getProject().getProjectDir().getAbsolutePath());
-        if (fromConfig.getSrcDirectory().isPresent()) {
-            toConfig.setSrc(fromConfig.getSrcDirectory().get().getAsFile().getAbsolutePath());
+        toConfig.setName(fromConfig.getName());
+        toConfig.setRoot(fromConfig.getRoot().getAbsolutePath());
+        File src = fromConfig.getLocation(XtextSubProject.SRC);
+        if (src != null) {
+            toConfig.setSrc(src.getAbsolutePath());
         }
-        if (fromConfig.getSrcGenDirectory().isPresent()) {
-            toConfig.setSrcGen(fromConfig.getSrcGenDirectory().get().getAsFile().getAbsolutePath());
+        File srcGen = fromConfig.getLocation(XtextSubProject.SRC_GEN);
+        if (srcGen != null) {
+            toConfig.setSrcGen(srcGen.getAbsolutePath());
+            File resourcesGen = fromConfig.getLocation(XtextSubProject.RESOURCES_GEN);
+            if (resourcesGen != null) {
+                String resourcesGenPath = resourcesGen.getAbsolutePath();
+                projectConfig.setResourcesGenPath(toConfig.getSrcGenPath(), resourcesGenPath);
+                // the resources were generated into the src-gen directory, which the cleaner cleans
+                generator.getCleaner().addExtraDirectory(resourcesGenPath);
+            }
         }
-        if (fromConfig.getMetaInfDirectory().isPresent()) {
-            toConfig.setMetaInf(fromConfig.getMetaInfDirectory().get().getAsFile().getAbsolutePath());
+        File metaInf = fromConfig.getLocation(XtextSubProject.META_INF);
+        if (metaInf != null) {
+            toConfig.setMetaInf(metaInf.getAbsolutePath());
         }
-        if (fromConfig.getIconsDirectory().isPresent()) {
-            toConfig.setIcons(fromConfig.getIconsDirectory().get().getAsFile().getAbsolutePath());
+        File icons = fromConfig.getLocation(XtextSubProject.ICONS);
+        if (icons != null) {
+            toConfig.setIcons(icons.getAbsolutePath());
         }
     }
 
-    private String relativeToRoot(File root, Provider<? extends FileSystemLocation> file) {
-        Path relative = root.toPath().toAbsolutePath().relativize(file.get().getAsFile().toPath());
+    private String relativeToRoot(File root, File file) {
+        Path relative = root.toPath().toAbsolutePath().relativize(file.toPath().toAbsolutePath());
         return StreamSupport.stream(relative.spliterator(), false).map(Path::toString).collect(Collectors.joining("/"));
     }
 }
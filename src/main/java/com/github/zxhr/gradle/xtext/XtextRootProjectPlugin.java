@@ -2,14 +2,19 @@
 
 import org.codehaus.groovy.runtime.GStringImpl;
 import org.eclipse.xtext.util.XtextVersion;
-import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.plugins.ExtraPropertiesExtension;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 
+import com.github.zxhr.gradle.xtext.model.project.IBundleGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IRuntimeGradleProjectConfig;
 import com.github.zxhr.gradle.xtext.model.project.ISubGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IWebGradleProjectConfig;
 
 public class XtextRootProjectPlugin implements Plugin<Project> {
 
@@ -20,6 +25,14 @@ public class XtextRootProjectPlugin implements Plugin<Project> {
 
     /**
      * The name of the {@link XtextRootProjectExtension}.
+     * 
+     * <p>
+     * The extension is also added to the projects applying an Xtext sub-project
+     * plugin under this name. This is deprecated: configuring the root project
+     * from another project is incompatible with Gradle's isolated projects and
+     * configuration on demand, so configure the extension in the root project
+     * instead.
+     * </p>
      */
     public static final String EXTENSION_NAME = "xtextRoot";
 
@@ -28,33 +41,47 @@ public class XtextRootProjectPlugin implements Plugin<Project> {
      */
     public static final String GENERATE_MWE2_TASK_NAME = "generateMwe2";
 
+    /**
+     * The name of the configuration containing the classpath for running the
+     * {@link #GENERATE_MWE2_TASK_NAME generator} in isolation.
+     */
+    public static final String XTEXT_GENERATOR_CONFIGURATION_NAME = "xtextGenerator";
+
     private XtextRootProjectExtension rootExtension;
-    private Object xtextVersion;
 
     @Override
     public void apply(Project project) {
         configureExtension(project);
-        xtextVersion = getXtextVersion(project, rootExtension);
-        addXtextVersion(project);
+        addXtextVersion(project, rootExtension.getXtextVersion());
+        Configuration generatorClasspath = createGeneratorConfiguration(project);
+        Provider<XtextGeneratorService> generatorService = project.getGradle().getSharedServices()
+                .registerIfAbsent(XtextGeneratorService.NAME, XtextGeneratorService.class, spec -> {
+                });
         TaskProvider<GenerateMwe2> generateMwe2 = project.getTasks().register(GENERATE_MWE2_TASK_NAME,
                 GenerateMwe2.class, task -> {
                     task.getGenerator().set(rootExtension.getXtextGenerator());
                     task.getGenerator().finalizeValueOnRead();
+                    task.getXtextVersion().set(rootExtension.getXtextVersion());
+                    task.getGeneratorClasspath().from(generatorClasspath);
+                    task.getGeneratorService().set(generatorService);
+                    task.usesService(generatorService);
                 });
         rootExtension.setGenerateMwe2Task(generateMwe2);
-        project.allprojects(p -> {
-            configurePlugin(XtextRuntimePlugin.class, p, rootExtension.getRuntimeConfig(),
-                    XtextRuntimePlugin.EXTENSION_NAME);
-            configurePlugin(XtextRuntimeTestPlugin.class, p, rootExtension.getRuntimeTestConfig(),
-                    XtextRuntimeTestPlugin.EXTENSION_NAME);
-            configurePlugin(XtextGenericIdePlugin.class, p, rootExtension.getGenericIdeConfig(),
-                    XtextGenericIdePlugin.EXTENSION_NAME);
-            configurePlugin(XtextEclipsePluginPlugin.class, p, rootExtension.getEclipsePluginConfig(),
-                    XtextEclipsePluginPlugin.EXTENSION_NAME);
-            configurePlugin(XtextEclipsePluginTestPlugin.class, p, rootExtension.getEclipsePluginTestConfig(),
-                    XtextEclipsePluginTestPlugin.EXTENSION_NAME);
-            configurePlugin(XtextWebPlugin.class, p, rootExtension.getWebConfig(), XtextWebPlugin.EXTENSION_NAME);
-        });
+        // the sub-project plugins register themselves, so other projects are not configured
+        XtextProjectRegistry registry = XtextProjectRegistry.of(project);
+        registry.registerRoot(project);
+        connectSubProject(project, registry, rootExtension.getRuntimeConfig(), XtextRuntimePlugin.EXTENSION_NAME,
+                IRuntimeGradleProjectConfig.class);
+        connectSubProject(project, registry, rootExtension.getRuntimeTestConfig(),
+                XtextRuntimeTestPlugin.EXTENSION_NAME, IBundleGradleProjectConfig.class);
+        connectSubProject(project, registry, rootExtension.getGenericIdeConfig(),
+                XtextGenericIdePlugin.EXTENSION_NAME, IBundleGradleProjectConfig.class);
+        connectSubProject(project, registry, rootExtension.getEclipsePluginConfig(),
+                XtextEclipsePluginPlugin.EXTENSION_NAME, IBundleGradleProjectConfig.class);
+        connectSubProject(project, registry, rootExtension.getEclipsePluginTestConfig(),
+                XtextEclipsePluginTestPlugin.EXTENSION_NAME, IBundleGradleProjectConfig.class);
+        connectSubProject(project, registry, rootExtension.getWebConfig(), XtextWebPlugin.EXTENSION_NAME,
+                IWebGradleProjectConfig.class);
     }
 
     private void configureExtension(Project project) {
@@ -70,39 +97,58 @@ private void configureExtension(Project project) {
         rootExtension.getXtextVersion().finalizeValueOnRead();
     }
 
-    private <T extends ISubGradleProjectConfig> void configurePlugin(Class<? extends Plugin<Project>> pluginClass,
-            Project project, Property<T> property, String extensionName) {
-        project.getPlugins().withType(pluginClass, plugin -> {
-            if (property.isPresent()) {
-                throw new GradleException(pluginClass.getName() + " has already been applied to project "
-                        + property.get().getProject().getName());
-            }
-            @SuppressWarnings("unchecked")
-            T config = (T) project.getExtensions().getByName(extensionName);
-            property.set(config);
-            if (project.getExtensions().findByName(EXTENSION_NAME) == null) {
-                project.getExtensions().add(XtextRootProjectExtension.class, EXTENSION_NAME, rootExtension);
-            }
-            addXtextVersion(project);
+    private Configuration createGeneratorConfiguration(Project project) {
+        return project.getConfigurations().create(XTEXT_GENERATOR_CONFIGURATION_NAME, configuration -> {
+            configuration.setDescription("The classpath for running the Xtext generator in isolation.");
+            configuration.setVisible(false);
+            configuration.setCanBeConsumed(false);
+            configuration.defaultDependencies(dependencies -> {
+                DependencyHandler handler = project.getDependencies();
+                String version = rootExtension.getXtextVersion().get();
+                dependencies.add(handler.platform("org.eclipse.xtext:xtext-dev-bom:" + version));
+                dependencies.add(handler.create("org.eclipse.xtext:org.eclipse.xtext.xtext.generator:" + version));
+                dependencies.add(handler.create("org.eclipse.xtext:org.eclipse.xtext.common.types:" + version));
+                dependencies.add(handler.create("org.eclipse.xtext:xtext-antlr-generator"));
+                dependencies.add(handler.create("org.eclipse.emf:org.eclipse.emf.mwe2.launch"));
+            });
         });
     }
 
-    private Object getXtextVersion(Project project, XtextRootProjectExtension rootExtension) {
+    /**
+     * Resolves the configuration published by the sub-project, unless the
+     * extension's config is set, and publishes the directories generated for
+     * the sub-project.
+     */
+    private <C extends ISubGradleProjectConfig> void connectSubProject(Project project,
+            XtextProjectRegistry registry, Property<C> config, String extensionName, Class<C> configClass) {
+        Property<XtextSubProject> subProject = project.getObjects().property(XtextSubProject.class);
+        subProject.set(config.map(XtextSubProject::of)
+                .orElse(XtextSubProject.consume(project, extensionName, registry)));
+        subProject.finalizeValueOnRead();
+        rootExtension.setSubProject(extensionName, subProject);
+        XtextGeneratedOutputs.publish(project, extensionName, configClass, subProject,
+                rootExtension.getGenerateMwe2Task(), rootExtension.getXtextVersion());
+    }
+
+    /**
+     * Adds the {@link #XTEXT_VERSION_PROPERTY} to the project's
+     * {@link ExtraPropertiesExtension ext} properties, unless the project already
+     * has one. The version is only queried when the property is converted to a
+     * string.
+     */
+    static void addXtextVersion(Project project, Provider<String> xtextVersion) {
+        ExtraPropertiesExtension ext = project.getExtensions().getByType(ExtraPropertiesExtension.class);
+        if (ext.has(XTEXT_VERSION_PROPERTY)) {
+            return;
+        }
         Property<String> version = project.getObjects().property(String.class);
-        version.set(rootExtension.getXtextVersion().orElse(XtextVersion.getCurrent().getVersion()));
+        version.set(xtextVersion.orElse(XtextVersion.getCurrent().getVersion()));
         version.finalizeValueOnRead();
-        return new GStringImpl(new Object[] { new Object() {
+        ext.set(XTEXT_VERSION_PROPERTY, new GStringImpl(new Object[] { new Object() {
             @Override
             public String toString() {
                 return version.get();
             }
-        } }, new String[] { "" });
-    }
-
-    private void addXtextVersion(Project project) {
-        ExtraPropertiesExtension ext = project.getExtensions().getByType(ExtraPropertiesExtension.class);
-        if (!ext.has(XTEXT_VERSION_PROPERTY)) {
-            ext.set(XTEXT_VERSION_PROPERTY, xtextVersion);
-        }
+        } }, new String[] { "" }));
     }
 }
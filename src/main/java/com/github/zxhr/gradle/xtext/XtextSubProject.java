@@ -0,0 +1,264 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+
+import com.github.zxhr.gradle.xtext.model.project.IBundleGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IRuntimeGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.ISubGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.IWebGradleProjectConfig;
+import com.github.zxhr.gradle.xtext.model.project.RuntimeGradleProjectConfig;
+
+/**
+ * The configuration of an Xtext sub-project, which the sub-project publishes
+ * as variants of a consumable configuration and which its root project
+ * resolves through a project dependency on the sub-project. The project
+ * directory is the artifact of the configuration, and each other configured
+ * location is the artifact of a variant of the same name; the project name
+ * and whether the Ecore models are binary are attributes of the
+ * configuration. The root project thereby reads the configuration without
+ * accessing the sub-project's model.
+ */
+final class XtextSubProject {
+
+    /**
+     * The {@link Usage} of the published configuration.
+     */
+    static final String USAGE = "xtext-project";
+
+    /**
+     * The location the artifact of a variant is.
+     */
+    static final Attribute<String> LOCATION_ATTRIBUTE = Attribute.of("com.github.zxhr.xtext.location", String.class);
+
+    /**
+     * The name of the sub-project.
+     */
+    static final Attribute<String> NAME_ATTRIBUTE = Attribute.of("com.github.zxhr.xtext.name", String.class);
+
+    /**
+     * Whether the Ecore models of a runtime project are binary.
+     */
+    static final Attribute<String> BINARY_ECORE_MODELS_ATTRIBUTE = Attribute
+            .of("com.github.zxhr.xtext.binaryEcoreModels", String.class);
+
+    static final String ROOT = "root";
+    static final String SRC = "src";
+    static final String SRC_GEN = "srcGen";
+    static final String RESOURCES_GEN = "resourcesGen";
+    static final String META_INF = "metaInf";
+    static final String ICONS = "icons";
+    static final String MANIFEST = "manifest";
+    static final String PLUGIN_XML = "pluginXml";
+    static final String ECORE_MODEL = "ecoreModel";
+    static final String ASSETS = "assets";
+
+    private static final List<String> LOCATIONS = Collections.unmodifiableList(Arrays.asList(SRC, SRC_GEN,
+            RESOURCES_GEN, META_INF, ICONS, MANIFEST, PLUGIN_XML, ECORE_MODEL, ASSETS));
+
+    private final String name;
+    private final File root;
+    private final Map<String, File> locations;
+    private final boolean binaryEcoreModels;
+
+    private XtextSubProject(String name, File root, Map<String, File> locations, boolean binaryEcoreModels) {
+        this.name = name;
+        this.root = root;
+        this.locations = locations;
+        this.binaryEcoreModels = binaryEcoreModels;
+    }
+
+    /**
+     * Returns the name of the sub-project.
+     *
+     * @return the name of the sub-project
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the project directory of the sub-project.
+     *
+     * @return the project directory
+     */
+    File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns a configured location of the sub-project.
+     *
+     * @param location the name of the location, e.g. {@link #SRC_GEN}
+     * @return the location, or {@code null} if it is not configured
+     */
+    File getLocation(String location) {
+        return locations.get(location);
+    }
+
+    /**
+     * Returns whether the Ecore models of the runtime project are binary.
+     *
+     * @return whether the Ecore models are binary
+     */
+    boolean isBinaryEcoreModels() {
+        return binaryEcoreModels;
+    }
+
+    /**
+     * Returns the current values of a sub-project configuration.
+     *
+     * @param config the sub-project configuration
+     * @return the values of the configuration
+     */
+    static XtextSubProject of(ISubGradleProjectConfig config) {
+        Map<String, File> locations = new LinkedHashMap<>();
+        locations(config).forEach((location, value) -> {
+            if (value.isPresent()) {
+                locations.put(location, value.get().getAsFile().getAbsoluteFile());
+            }
+        });
+        boolean binaryEcoreModels = config instanceof RuntimeGradleProjectConfig
+                && ((RuntimeGradleProjectConfig) config).getBinaryEcoreModels().getOrElse(false);
+        Project project = config.getProject();
+        return new XtextSubProject(config.getProjectName().getOrElse(project.getName()),
+                project.getProjectDir().getAbsoluteFile(), locations, binaryEcoreModels);
+    }
+
+    /**
+     * Creates the consumable configuration of a sub-project publishing its
+     * configuration. The locations are published once the project is
+     * evaluated, when their values are final.
+     *
+     * @param project       the sub-project
+     * @param extensionName the extension name of the sub-project plugin
+     * @param config        the configuration of the sub-project
+     */
+    static void publish(Project project, String extensionName, ISubGradleProjectConfig config) {
+        Configuration published = project.getConfigurations().create(extensionName + "ConfigElements",
+                configuration -> {
+                    configuration.setDescription("The Xtext configuration of the " + extensionName + " project.");
+                    configuration.setVisible(false);
+                    configuration.setCanBeResolved(false);
+                    attributes(project.getObjects(), configuration.getAttributes(), extensionName);
+                    configuration.getAttributes().attribute(LOCATION_ATTRIBUTE, ROOT);
+                    configuration.getOutgoing().artifact(project.getProjectDir());
+                });
+        project.afterEvaluate(__ -> {
+            XtextSubProject subProject = of(config);
+            published.getAttributes().attribute(NAME_ATTRIBUTE, subProject.name);
+            published.getAttributes().attribute(BINARY_ECORE_MODELS_ATTRIBUTE,
+                    String.valueOf(subProject.binaryEcoreModels));
+            subProject.locations.forEach((location, file) -> {
+                published.getOutgoing().getVariants().create(location, variant -> {
+                    variant.attributes(attributes -> attributes.attribute(LOCATION_ATTRIBUTE, location));
+                    variant.artifact(file);
+                });
+            });
+        });
+    }
+
+    /**
+     * Returns the configuration of the sub-project applying a sub-project
+     * plugin, resolved from the configuration it publishes. If the root project
+     * applies the plugin itself, its extension is read directly.
+     *
+     * @param rootProject   the root project
+     * @param extensionName the extension name of the sub-project plugin
+     * @param registry      the registry of the project's build
+     * @return the configuration of the sub-project, absent if no sub-project of
+     *         the root project applies the plugin
+     */
+    static Provider<XtextSubProject> consume(Project rootProject, String extensionName,
+            XtextProjectRegistry registry) {
+        Configuration resolvable = rootProject.getConfigurations().create(extensionName + "Config", configuration -> {
+            configuration.setDescription("The Xtext configuration of the " + extensionName + " project.");
+            configuration.setVisible(false);
+            configuration.setCanBeConsumed(false);
+            attributes(rootProject.getObjects(), configuration.getAttributes(), extensionName);
+            configuration.withDependencies(dependencies -> {
+                String path = registry.getSubProjectPath(rootProject, extensionName);
+                if (path != null && !path.equals(rootProject.getPath())) {
+                    dependencies.add(rootProject.getDependencies().project(Collections.singletonMap("path", path)));
+                }
+            });
+        });
+        return rootProject.provider(() -> {
+            String path = registry.getSubProjectPath(rootProject, extensionName);
+            if (path == null) {
+                return null;
+            }
+            if (path.equals(rootProject.getPath())) {
+                return of((ISubGradleProjectConfig) rootProject.getExtensions().getByName(extensionName));
+            }
+            return read(resolvable);
+        });
+    }
+
+    private static XtextSubProject read(Configuration resolvable) {
+        ResolvedArtifactResult root = resolve(resolvable, ROOT);
+        if (root == null) {
+            return null;
+        }
+        Map<String, File> locations = new LinkedHashMap<>();
+        for (String location : LOCATIONS) {
+            ResolvedArtifactResult artifact = resolve(resolvable, location);
+            if (artifact != null) {
+                locations.put(location, artifact.getFile());
+            }
+        }
+        AttributeContainer attributes = root.getVariant().getAttributes();
+        return new XtextSubProject(attributes.getAttribute(NAME_ATTRIBUTE), root.getFile(), locations,
+                Boolean.parseBoolean(attributes.getAttribute(BINARY_ECORE_MODELS_ATTRIBUTE)));
+    }
+
+    private static ResolvedArtifactResult resolve(Configuration resolvable, String location) {
+        // locations which are not configured have no variant
+        for (ResolvedArtifactResult artifact : resolvable.getIncoming().artifactView(view -> {
+            view.lenient(true);
+            view.attributes(attributes -> attributes.attribute(LOCATION_ATTRIBUTE, location));
+        }).getArtifacts()) {
+            return artifact;
+        }
+        return null;
+    }
+
+    private static void attributes(ObjectFactory objects, AttributeContainer attributes, String extensionName) {
+        attributes.attribute(Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, USAGE));
+        attributes.attribute(XtextGeneratedOutputs.PROJECT_ATTRIBUTE, extensionName);
+    }
+
+    private static Map<String, Provider<? extends FileSystemLocation>> locations(ISubGradleProjectConfig config) {
+        Map<String, Provider<? extends FileSystemLocation>> locations = new LinkedHashMap<>();
+        locations.put(SRC, config.getSrcDirectory());
+        locations.put(SRC_GEN, config.getSrcGenDirectory());
+        locations.put(RESOURCES_GEN, config.getResourcesGenDirectory());
+        locations.put(META_INF, config.getMetaInfDirectory());
+        locations.put(ICONS, config.getIconsDirectory());
+        if (config instanceof IBundleGradleProjectConfig) {
+            locations.put(MANIFEST, ((IBundleGradleProjectConfig) config).getManifest());
+            locations.put(PLUGIN_XML, ((IBundleGradleProjectConfig) config).getPluginXml());
+        }
+        if (config instanceof IRuntimeGradleProjectConfig) {
+            locations.put(ECORE_MODEL, ((IRuntimeGradleProjectConfig) config).getEcoreModelDirectory());
+        }
+        if (config instanceof IWebGradleProjectConfig) {
+            locations.put(ASSETS, ((IWebGradleProjectConfig) config).getAssetsDirectory());
+        }
+        return locations;
+    }
+}
@@ -25,7 +25,13 @@ public interface ISubGradleProjectConfig {
      * Returns the task that generates this project.
      * 
      * @return the task that generates this project
+     * @deprecated the task belongs to the root project, whose model other
+     *             projects should not access, so this method is not supported
+     *             with Gradle's isolated projects; the generated directories
+     *             the plugins add to the source sets already depend on the
+     *             task, which is configured in the root project
      */
+    @Deprecated
     TaskProvider<GenerateMwe2> getGenerateMwe2();
 
     /**
@@ -2,14 +2,17 @@
 
 import org.gradle.api.Project;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
 
 public class RuntimeGradleProjectConfig extends BundleGradleProjectConfig implements IRuntimeGradleProjectConfig {
 
 	private final DirectoryProperty ecoreModel;
+	private final Property<Boolean> binaryEcoreModels;
 
 	public RuntimeGradleProjectConfig(Project project) {
 		super(project);
 		this.ecoreModel = project.getObjects().directoryProperty();
+		this.binaryEcoreModels = project.getObjects().property(Boolean.class).convention(false);
 	}
 
 	@Override
@@ -17,4 +20,15 @@ public DirectoryProperty getEcoreModelDirectory() {
 		return ecoreModel;
 	}
 
+	/**
+	 * Returns whether each generated ecore model is also written in EMF's binary
+	 * resource format, as {@code <name>.ecorebin} next to the XMI
+	 * {@code <name>.ecore}. Defaults to {@code false}.
+	 * 
+	 * @return whether binary ecore models are generated
+	 */
+	public Property<Boolean> getBinaryEcoreModels() {
+		return binaryEcoreModels;
+	}
+
 }
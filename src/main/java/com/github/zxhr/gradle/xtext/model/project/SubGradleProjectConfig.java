@@ -7,7 +7,7 @@
 import org.gradle.api.tasks.TaskProvider;
 
 import com.github.zxhr.gradle.xtext.GenerateMwe2;
-import com.github.zxhr.gradle.xtext.XtextRootProjectExtension;
+import com.github.zxhr.gradle.xtext.XtextProjectRegistry;
 
 public class SubGradleProjectConfig implements ISubGradleProjectConfig {
 
@@ -36,9 +36,13 @@ public Project getProject() {
     }
 
     @Override
+    @Deprecated
     public TaskProvider<GenerateMwe2> getGenerateMwe2() {
-        XtextRootProjectExtension rootExtension = project.getExtensions().getByType(XtextRootProjectExtension.class);
-        return rootExtension.getGenerateMwe2Task();
+        // not supported with isolated projects, since it reads the task container of the root project
+        String taskPath = XtextProjectRegistry.of(project).getGenerateTaskPath(project);
+        int separator = taskPath.lastIndexOf(Project.PATH_SEPARATOR);
+        String rootPath = separator == 0 ? Project.PATH_SEPARATOR : taskPath.substring(0, separator);
+        return project.project(rootPath).getTasks().named(taskPath.substring(separator + 1), GenerateMwe2.class);
     }
 
     @Override
@@ -0,0 +1,108 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The measurements of the build performance scenarios, keyed by
+ * {@code <workspace>.<build>.<metric>}, and their comparison with a baseline.
+ * The measurements are stored with {@link PropertiesCodec}, so that a baseline
+ * can be checked in and reviewed as plain text.
+ */
+final class BuildPerformanceResults {
+
+    static final String CONFIGURATION_TIME = "configurationTime";
+    static final String GENERATE_MWE2_TIME = "generateMwe2Time";
+    static final String BUILD_TIME = "buildTime";
+    static final String TASKS = "tasks";
+    static final String UP_TO_DATE_RATIO = "upToDateRatio";
+
+    /**
+     * Timings within this many milliseconds of the baseline are never reported,
+     * so that small builds do not fail because of noise.
+     */
+    private static final double MIN_TIME_SLACK = 100;
+
+    private final Map<String, String> measurements = new TreeMap<>();
+
+    /**
+     * Records the median of the values measured for a metric.
+     *
+     * @param key    the key of the metric
+     * @param values the measured values
+     */
+    synchronized void record(String key, double... values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double median = sorted.length % 2 == 1 ? sorted[sorted.length / 2]
+                : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+        measurements.put(key, key.endsWith(UP_TO_DATE_RATIO) ? String.format(Locale.ROOT, "%.3f", median)
+                : String.valueOf(Math.round(median)));
+    }
+
+    /**
+     * Compares the measurements starting with the prefix to the baseline.
+     * Timings regress when they exceed the baseline by more than the tolerance,
+     * task counts when they increase, and up-to-date ratios when they decrease.
+     * Metrics missing from the baseline are ignored.
+     *
+     * @param baseline  the baseline measurements
+     * @param prefix    the prefix of the compared keys
+     * @param tolerance the tolerated relative increase of timings
+     * @return the descriptions of the regressions
+     */
+    synchronized List<String> findRegressions(Map<String, String> baseline, String prefix, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, String> measurement : measurements.entrySet()) {
+            String key = measurement.getKey();
+            String expected = baseline.get(key);
+            if (!key.startsWith(prefix) || expected == null) {
+                continue;
+            }
+            double base = Double.parseDouble(expected);
+            double value = Double.parseDouble(measurement.getValue());
+            boolean regressed;
+            if (key.endsWith(TASKS)) {
+                regressed = value > base;
+            } else if (key.endsWith(UP_TO_DATE_RATIO)) {
+                regressed = value < base - 0.0005;
+            } else {
+                regressed = value > base + Math.max(base * tolerance, MIN_TIME_SLACK);
+            }
+            if (regressed) {
+                regressions.add(key + ": " + measurement.getValue() + " (baseline " + expected + ")");
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads measurements written by {@link #write(Path)}.
+     *
+     * @param file the file
+     * @return the measurements
+     * @throws IOException if the file cannot be read
+     */
+    static Map<String, String> read(Path file) throws IOException {
+        return PropertiesCodec.decode(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes the measurements sorted by key.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, PropertiesCodec.encode(measurements));
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.github.zxhr.gradle.xtext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates an Xtext workspace with a number of grammars, a number of
+ * sub-projects consuming the generated languages, and a number of parser rules
+ * in each grammar. The workspace is described by a specification of the form
+ * {@code <grammars>x<sub-projects>x<rules>}, such as {@code 10x20x200}.
+ */
+final class SyntheticWorkspace {
+
+    static final String RUNTIME_PROJECT = "perf.runtime";
+    static final String IDE_PROJECT = "perf.ide";
+
+    private final String specification;
+    private final int grammars;
+    private final int subprojects;
+    private final int rules;
+
+    private SyntheticWorkspace(String specification, int grammars, int subprojects, int rules) {
+        this.specification = specification;
+        this.grammars = grammars;
+        this.subprojects = subprojects;
+        this.rules = rules;
+    }
+
+    /**
+     * Parses a workspace specification.
+     *
+     * @param specification the specification, {@code <grammars>x<sub-projects>x<rules>}
+     * @return the workspace
+     */
+    static SyntheticWorkspace parse(String specification) {
+        String[] parts = specification.trim().split("x");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException(
+                    "Expected <grammars>x<sub-projects>x<rules> but got '" + specification + "'");
+        }
+        int grammars = Integer.parseInt(parts[0]);
+        int subprojects = Integer.parseInt(parts[1]);
+        int rules = Integer.parseInt(parts[2]);
+        if (grammars < 1 || subprojects < 0 || rules < 1) {
+            throw new IllegalArgumentException("Invalid workspace specification '" + specification + "'");
+        }
+        return new SyntheticWorkspace(specification.trim(), grammars, subprojects, rules);
+    }
+
+    /**
+     * Returns the specification of the workspace, used as the name of its
+     * measurements.
+     *
+     * @return the specification
+     */
+    String getSpecification() {
+        return specification;
+    }
+
+    /**
+     * Creates the workspace.
+     *
+     * @param rootDir the root project directory
+     * @throws IOException if the workspace cannot be written
+     */
+    void create(Path rootDir) throws IOException {
+        StringBuilder settings = new StringBuilder("rootProject.name = 'perf'\n");
+        settings.append("include '").append(RUNTIME_PROJECT).append("'\n");
+        settings.append("include '").append(IDE_PROJECT).append("'\n");
+        for (int i = 0; i < subprojects; i++) {
+            settings.append("include '").append(moduleName(i)).append("'\n");
+        }
+        settings.append("buildCache { local { directory = new File(rootDir, 'build-cache') } }\n");
+        write(rootDir.resolve("settings.gradle"), settings);
+        write(rootDir.resolve("build.gradle"), rootBuildScript());
+        write(rootDir.resolve(RUNTIME_PROJECT).resolve("build.gradle"), runtimeBuildScript());
+        write(rootDir.resolve(IDE_PROJECT).resolve("build.gradle"), ideBuildScript());
+        for (int i = 0; i < grammars; i++) {
+            writeGrammar(rootDir, i, 0);
+        }
+        for (int i = 0; i < subprojects; i++) {
+            Path moduleDir = rootDir.resolve(moduleName(i));
+            write(moduleDir.resolve("build.gradle"), moduleBuildScript());
+            String packageName = "org.example.perf.module" + i;
+            write(moduleDir.resolve("src/main/java/" + packageName.replace('.', '/') + "/Module" + i + ".java"),
+                    moduleSource(packageName, i));
+        }
+    }
+
+    /**
+     * Edits the first grammar by renaming a keyword, so that the next build has
+     * to regenerate it.
+     *
+     * @param rootDir  the root project directory
+     * @param revision the revision of the grammar, different for each edit
+     * @throws IOException if the grammar cannot be written
+     */
+    void editGrammar(Path rootDir, int revision) throws IOException {
+        writeGrammar(rootDir, 0, revision);
+    }
+
+    private void writeGrammar(Path rootDir, int index, int revision) throws IOException {
+        String name = languageName(index);
+        StringBuilder grammar = new StringBuilder();
+        grammar.append("grammar org.example.perf.").append(name.toLowerCase()).append('.').append(name)
+                .append(" with org.eclipse.xtext.common.Terminals\n\n");
+        grammar.append("generate ").append(name.toLowerCase()).append(" \"http://www.example.org/perf/")
+                .append(name).append("\"\n\n");
+        grammar.append("Model:\n\telements+=Element*;\n\nElement:\n\t");
+        for (int i = 0; i < rules; i++) {
+            grammar.append(i == 0 ? "" : " | ").append("Rule").append(i);
+        }
+        grammar.append(";\n");
+        for (int i = 0; i < rules; i++) {
+            String keyword = i == 0 && revision > 0 ? "rule0r" + revision : "rule" + i;
+            grammar.append("\nRule").append(i).append(":\n\t'").append(keyword)
+                    .append("' name=ID ('extends' parent=[Element])? '{' values+=INT* '}';\n");
+        }
+        write(grammarFile(rootDir, index), grammar);
+    }
+
+    private CharSequence rootBuildScript() {
+        StringBuilder script = new StringBuilder();
+        script.append("import org.eclipse.xtext.xtext.generator.StandardLanguage\n\n");
+        script.append("buildscript {\n");
+        script.append("    repositories {\n        mavenLocal()\n        jcenter()\n    }\n");
+        script.append("    dependencies {\n");
+        script.append("        classpath enforcedPlatform(\"org.eclipse.xtext:xtext-dev-bom:$xtextExampleVersion\")\n");
+        script.append("        classpath \"com.github.zxhr:gradle-xtext-generator:$pluginVersion\"\n");
+        script.append("        classpath \"org.eclipse.xtext:org.eclipse.xtext.xtext.generator:$xtextExampleVersion\"\n");
+        script.append("    }\n}\n\n");
+        script.append("apply plugin: 'com.github.zxhr.xtext-generator-root-project'\n\n");
+        script.append("subprojects {\n    group = 'org.example.perf'\n    version = '0.0.0-SNAPSHOT'\n");
+        script.append("    repositories {\n        jcenter()\n    }\n}\n\n");
+        script.append("xtextRoot {\n");
+        for (int i = 0; i < grammars; i++) {
+            String name = languageName(i);
+            script.append("    language('").append(name).append("', StandardLanguage) {\n");
+            script.append("        grammarUri = uri('src/main/xtext/").append(name).append(".xtext').toString()\n");
+            script.append("        fileExtensions = '").append(name.toLowerCase()).append("'\n");
+            script.append("        junitSupport.generateXtendStub = false\n");
+            script.append("    }\n");
+        }
+        script.append("}\n");
+        return script;
+    }
+
+    private static CharSequence runtimeBuildScript() {
+        return "plugins {\n" //
+                + "    id 'com.github.zxhr.xtext-generator-runtime'\n" //
+                + "    id 'com.github.zxhr.xtext-generator-runtime-test'\n" //
+                + "}\n\n" //
+                + "dependencies {\n" //
+                + "    implementation platform(\"org.eclipse.xtext:xtext-dev-bom:$xtextVersion\")\n" //
+                + "    implementation \"org.eclipse.xtext:org.eclipse.xtext:$xtextVersion\"\n\n" //
+                + "    testImplementation \"org.eclipse.xtext:org.eclipse.xtext.testing:$xtextVersion\"\n" //
+                + "    testImplementation 'junit:junit:4.12'\n" //
+                + "}\n";
+    }
+
+    private static CharSequence ideBuildScript() {
+        return "plugins {\n" //
+                + "    id 'com.github.zxhr.xtext-generator-generic-ide'\n" //
+                + "}\n\n" //
+                + "dependencies {\n" //
+                + "    implementation project(':" + RUNTIME_PROJECT + "')\n" //
+                + "    implementation platform(\"org.eclipse.xtext:xtext-dev-bom:$xtextVersion\")\n" //
+                + "    implementation \"org.eclipse.xtext:org.eclipse.xtext.ide:$xtextVersion\"\n" //
+                + "}\n";
+    }
+
+    private static CharSequence moduleBuildScript() {
+        return "plugins {\n" //
+                + "    id 'java-library'\n" //
+                + "}\n\n" //
+                + "dependencies {\n" //
+                + "    implementation project(':" + RUNTIME_PROJECT + "')\n" //
+                + "    implementation platform(\"org.eclipse.xtext:xtext-dev-bom:$xtextExampleVersion\")\n" //
+                + "    implementation \"org.eclipse.xtext:org.eclipse.xtext:$xtextExampleVersion\"\n" //
+                + "}\n";
+    }
+
+    private CharSequence moduleSource(String packageName, int index) {
+        String language = languageName(index % grammars);
+        String setup = "org.example.perf." + language.toLowerCase() + '.' + language + "StandaloneSetup";
+        return "package " + packageName + ";\n\n" //
+                + "public class Module" + index + " {\n\n" //
+                + "    public static Object createInjector() {\n" //
+                + "        return new " + setup + "().createInjectorAndDoEMFRegistration();\n" //
+                + "    }\n\n" //
+                + "}\n";
+    }
+
+    private static Path grammarFile(Path rootDir, int index) {
+        return rootDir.resolve("src/main/xtext/" + languageName(index) + ".xtext");
+    }
+
+    private static String languageName(int index) {
+        return "Lang" + index;
+    }
+
+    private static String moduleName(int index) {
+        return "perf.module" + index;
+    }
+
+    private static void write(Path file, CharSequence content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.github.zxhr.gradle.xtext;
+
+import static com.github.zxhr.gradle.xtext.BuildPerformanceResults.BUILD_TIME;
+import static com.github.zxhr.gradle.xtext.BuildPerformanceResults.CONFIGURATION_TIME;
+import static com.github.zxhr.gradle.xtext.BuildPerformanceResults.GENERATE_MWE2_TIME;
+import static com.github.zxhr.gradle.xtext.BuildPerformanceResults.TASKS;
+import static com.github.zxhr.gradle.xtext.BuildPerformanceResults.UP_TO_DATE_RATIO;
+import static com.github.zxhr.gradle.xtext.XtextRootProjectPlugin.GENERATE_MWE2_TASK_NAME;
+import static java.util.Arrays.asList;
+import static org.gradle.language.base.plugins.LifecycleBasePlugin.ASSEMBLE_TASK_NAME;
+import static org.gradle.language.base.plugins.LifecycleBasePlugin.CLEAN_TASK_NAME;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
+import static org.gradle.testkit.runner.TaskOutcome.NO_SOURCE;
+import static org.gradle.testkit.runner.TaskOutcome.SKIPPED;
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.gradle.api.Project;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class XtextBuildPerformanceTest {
+
+    private static final String INIT_SCRIPT = "def buildStart = System.nanoTime()\n"
+            + "def timings = [" + CONFIGURATION_TIME + ": 0L, " + GENERATE_MWE2_TIME + ": 0L]\n"
+            + "def taskStarts = [:]\n"
+            + "gradle.taskGraph.whenReady {\n"
+            + "    timings." + CONFIGURATION_TIME + " = (System.nanoTime() - buildStart).intdiv(1000000)\n"
+            + "}\n"
+            + "gradle.taskGraph.beforeTask { task -> taskStarts[task.path] = System.nanoTime() }\n"
+            + "gradle.taskGraph.afterTask { task ->\n"
+            + "    if (task.name == '" + GENERATE_MWE2_TASK_NAME + "') {\n"
+            + "        timings." + GENERATE_MWE2_TIME
+            + " += (System.nanoTime() - taskStarts[task.path]).intdiv(1000000)\n"
+            + "    }\n"
+            + "}\n"
+            + "gradle.buildFinished {\n"
+            + "    new File(gradle.startParameter.projectProperties.perfTimings).text =\n"
+            + "        timings.collect { key, value -> \"$key=$value\" }.join('\\n') + '\\n'\n"
+            + "}\n";
+    private static final Set<TaskOutcome> AVOIDED = EnumSet.of(UP_TO_DATE, FROM_CACHE, NO_SOURCE, SKIPPED);
+    private static final BuildPerformanceResults results = new BuildPerformanceResults();
+
+    private Path projectDir;
+    private Path initScript;
+    private Path timings;
+
+    public static Stream<String> getScenarios() {
+        return Stream.of(System.getProperty("perfScenarios", "1x2x10,10x20x200").split(","));
+    }
+
+    @AfterAll
+    public static void writeResults() throws IOException {
+        results.write(Paths.get(System.getProperty("perfResults")));
+    }
+
+    @ParameterizedTest(name = "Build Performance - Workspace {0}")
+    @MethodSource("getScenarios")
+    public void testBuildPerformance(String scenario) throws IOException {
+        SyntheticWorkspace workspace = SyntheticWorkspace.parse(scenario);
+        Path testDir = Files.createTempDirectory(Paths.get(System.getProperty("testdir")), "perf");
+        projectDir = testDir.resolve("workspace");
+        initScript = testDir.resolve("timings.gradle");
+        timings = testDir.resolve("timings.properties");
+        workspace.create(projectDir);
+        Files.write(initScript, INIT_SCRIPT.getBytes(StandardCharsets.UTF_8));
+        int iterations = Integer.getInteger("perfIterations", 3);
+        String prefix = workspace.getSpecification() + '.';
+
+        // warms up the daemon so that the first clean build is not penalized
+        runProject(CLEAN_TASK_NAME, ASSEMBLE_TASK_NAME);
+        measure(prefix + "clean", iterations, iteration -> {
+            BuildResult result = runProject(CLEAN_TASK_NAME, ASSEMBLE_TASK_NAME);
+            assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+            return result;
+        });
+        measure(prefix + "noop", iterations, iteration -> {
+            BuildResult result = runProject(ASSEMBLE_TASK_NAME);
+            assertEquals(UP_TO_DATE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+            return result;
+        });
+        measure(prefix + "incremental", iterations, iteration -> {
+            workspace.editGrammar(projectDir, iteration + 1);
+            BuildResult result = runProject(ASSEMBLE_TASK_NAME);
+            assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+            return result;
+        });
+        runProject("--build-cache", CLEAN_TASK_NAME, ASSEMBLE_TASK_NAME);
+        measure(prefix + "cacheHit", iterations, iteration -> {
+            BuildResult result = runProject("--build-cache", CLEAN_TASK_NAME, ASSEMBLE_TASK_NAME);
+            assertEquals(FROM_CACHE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+            return result;
+        });
+
+        String baseline = System.getProperty("perfBaseline");
+        if (baseline != null && Files.isRegularFile(Paths.get(baseline))) {
+            Map<String, String> baselineResults = BuildPerformanceResults.read(Paths.get(baseline));
+            double tolerance = Double.parseDouble(System.getProperty("perfTolerance", "0.2"));
+            List<String> regressions = results.findRegressions(baselineResults, prefix, tolerance);
+            assertTrue(regressions.isEmpty(), "Build performance regressed:\n" + String.join("\n", regressions));
+        }
+    }
+
+    private void measure(String key, int iterations, Build build) throws IOException {
+        double[] configurationTimes = new double[iterations];
+        double[] generateMwe2Times = new double[iterations];
+        double[] buildTimes = new double[iterations];
+        double[] tasks = new double[iterations];
+        double[] upToDateRatios = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            BuildResult result = build.run(i);
+            buildTimes[i] = (System.nanoTime() - start) / 1_000_000d;
+            Map<String, String> buildTimings = BuildPerformanceResults.read(timings);
+            configurationTimes[i] = Double.parseDouble(buildTimings.get(CONFIGURATION_TIME));
+            generateMwe2Times[i] = Double.parseDouble(buildTimings.get(GENERATE_MWE2_TIME));
+            List<BuildTask> executed = result.getTasks();
+            tasks[i] = executed.size();
+            upToDateRatios[i] = executed.isEmpty() ? 1
+                    : executed.stream().filter(task -> AVOIDED.contains(task.getOutcome())).count()
+                            / (double) executed.size();
+        }
+        results.record(key + '.' + CONFIGURATION_TIME, configurationTimes);
+        results.record(key + '.' + GENERATE_MWE2_TIME, generateMwe2Times);
+        results.record(key + '.' + BUILD_TIME, buildTimes);
+        results.record(key + '.' + TASKS, tasks);
+        results.record(key + '.' + UP_TO_DATE_RATIO, upToDateRatios);
+    }
+
+    private BuildResult runProject(String... tasks) {
+        List<String> arguments = new ArrayList<>();
+        arguments.addAll(asList("-PxtextExampleVersion=" + System.getProperty("xtextVersion"),
+                "-PpluginVersion=" + System.getProperty("pluginVersion"), "-PperfTimings=" + timings,
+                "-Dmaven.repo.local=" + System.getProperty("m2"), "-I", initScript.toString(), "-s"));
+        arguments.addAll(asList(tasks));
+        return GradleRunner.create().withProjectDir(projectDir.toFile()).withArguments(arguments).build();
+    }
+
+    private static String getTask(String... pathToTask) {
+        return Project.PATH_SEPARATOR + String.join(Project.PATH_SEPARATOR, pathToTask);
+    }
+
+    @FunctionalInterface
+    private interface Build {
+        BuildResult run(int iteration) throws IOException;
+    }
+
+}
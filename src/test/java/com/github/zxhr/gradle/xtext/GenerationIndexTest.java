@@ -0,0 +1,90 @@
+package com.github.zxhr.gradle.xtext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GenerationIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testDeleteStale() throws IOException {
+        Path srcGen = tempDir.resolve("src-gen");
+        Path kept = write(srcGen.resolve("Kept.java"), "kept");
+        Path stale = write(srcGen.resolve("Stale.java"), "stale");
+        Path changed = write(srcGen.resolve("Changed.java"), "changed");
+        Path outside = write(tempDir.resolve("src").resolve("Outside.java"), "outside");
+        Map<String, GeneratedFiles.Owner> files = new LinkedHashMap<>();
+        for (Path file : new Path[] { kept, stale, changed, outside }) {
+            files.put(file.toString(), new GeneratedFiles.Owner("MyDsl", "Fragment"));
+        }
+        File indexFile = tempDir.resolve("outputs.index").toFile();
+        GenerationIndex.of(files, new GradleXtextProjectConfig()).write(indexFile);
+        GenerationIndex previous = GenerationIndex.read(indexFile);
+
+        write(changed, "changed by hand");
+        GenerationIndex current = GenerationIndex.of(
+                Collections.singletonMap(kept.toString(), new GeneratedFiles.Owner("MyDsl", "Fragment")),
+                new GradleXtextProjectConfig());
+        GeneratedFiles generatedFiles = new GeneratedFiles();
+        previous.deleteStale(current, Collections.singleton(srcGen.toFile()), generatedFiles);
+
+        assertTrue(Files.exists(kept));
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(changed));
+        assertTrue(Files.exists(outside));
+        assertEquals(1, generatedFiles.getDeleted());
+    }
+
+    @Test
+    public void testRetain() throws IOException {
+        Path srcGen = tempDir.resolve("src-gen");
+        Path generated = write(srcGen.resolve("Generated.java"), "generated");
+        Path changed = write(srcGen.resolve("Changed.java"), "changed");
+        Path other = write(srcGen.resolve("Other.java"), "other");
+        Map<String, GeneratedFiles.Owner> files = new LinkedHashMap<>();
+        files.put(generated.toString(), new GeneratedFiles.Owner("MyDsl", "Fragment"));
+        files.put(changed.toString(), new GeneratedFiles.Owner("MyDsl", "Fragment"));
+        files.put(other.toString(), new GeneratedFiles.Owner("OtherDsl", "Fragment"));
+        GenerationIndex index = GenerationIndex.of(files, new GradleXtextProjectConfig());
+        write(changed, "changed by hand");
+
+        RetainedFiles retainedFiles = new RetainedFiles(tempDir.resolve("retained").toFile(),
+                Collections.singleton(srcGen.toFile()));
+        index.retain("MyDsl", Collections.singleton(srcGen.toFile()), retainedFiles);
+        assertFalse(Files.exists(generated));
+        assertTrue(Files.exists(changed));
+        assertTrue(Files.exists(other));
+
+        assertTrue(retainedFiles.restore(generated.toFile(), "generated".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(Files.exists(generated));
+        assertEquals(0, retainedFiles.restoreAll());
+        assertFalse(Files.exists(tempDir.resolve("retained")));
+    }
+
+    @Test
+    public void testReadMissingOrUnreadable() throws IOException {
+        assertNull(GenerationIndex.read(tempDir.resolve("missing.index").toFile()));
+        assertNull(GenerationIndex.read(write(tempDir.resolve("broken.index"), "broken").toFile()));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.zxhr.gradle.xtext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.util.Map;
+
+import org.eclipse.xtext.xtext.generator.StandardLanguage;
+import org.eclipse.xtext.xtext.generator.XtextGenerator;
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.eclipse.xtext.xtext.generator.junit.JUnitFragment;
+import org.eclipse.xtext.xtext.generator.model.project.SubProjectConfig;
+import org.eclipse.xtext.xtext.generator.serializer.SerializerFragment2;
+import org.eclipse.xtext.xtext.generator.validation.ValidatorFragment2;
+import org.junit.jupiter.api.Test;
+
+public class GeneratorPropertiesTest {
+
+    private static final File BASE = new File("build", "root").getAbsoluteFile();
+
+    @Test
+    public void testRelativePaths() {
+        Map<String, String> properties = GeneratorProperties.of(generator(BASE), BASE);
+        assertEquals("$base/example.mydsl/src-gen", properties.get("runtime.srcGen"));
+        assertEquals("$baseUri/src/main/xtext/MyDsl.xtext", properties.get("language.0.grammarUri"));
+        assertEquals("mydsl", properties.get("language.0.fileExtensions"));
+        assertEquals(StandardLanguage.class.getName(), properties.get("language.0.type"));
+        assertFalse(properties.containsKey("web.srcGen"));
+
+        File otherBase = new File("build", "other").getAbsoluteFile();
+        assertEquals(properties, GeneratorProperties.of(generator(otherBase), otherBase));
+    }
+
+    @Test
+    public void testChangedConfiguration() {
+        Map<String, String> properties = GeneratorProperties.of(generator(BASE), BASE);
+        XtextGenerator generator = generator(BASE);
+        generator.getConfiguration().getCode().setLineDelimiter("\r\n");
+        assertNotEquals(properties, GeneratorProperties.of(generator, BASE));
+    }
+
+    @Test
+    public void testUnsetFileExtensions() {
+        XtextGenerator generator = generator(BASE);
+        XtextGeneratorLanguage language = new XtextGeneratorLanguage();
+        language.setGrammarUri(new File(BASE, "Other.xtext").toURI().toString());
+        generator.addLanguage(language);
+        Map<String, String> properties = GeneratorProperties.of(generator, BASE);
+        assertEquals("$baseUri/Other.xtext", properties.get("language.1.grammarUri"));
+        assertFalse(properties.containsKey("language.1.fileExtensions"));
+    }
+
+    @Test
+    public void testParserOptions() {
+        XtextGenerator generator = generator(BASE);
+        GradleStandardLanguage language = new GradleStandardLanguage();
+        language.setGrammarUri(new File(BASE, "Other.xtext").toURI().toString());
+        generator.addLanguage(language);
+        Map<String, String> properties = GeneratorProperties.of(generator, BASE);
+        assertEquals("false", properties.get("language.1.parserGenerator.options.classSplitting"));
+
+        language.getParserGenerator().getOptions().setClassSplitting(true);
+        assertEquals("true",
+                GeneratorProperties.of(generator, BASE).get("language.1.parserGenerator.options.classSplitting"));
+    }
+
+    @Test
+    public void testFragmentConfiguration() {
+        Map<String, String> properties = GeneratorProperties.of(generator(BASE), BASE);
+        assertEquals("true", properties.get("language.0.junitSupport.generateXtendStub.value"));
+
+        XtextGenerator generator = generator(BASE);
+        StandardLanguage language = (StandardLanguage) generator.getLanguageConfigs().get(0);
+        JUnitFragment junitSupport = new JUnitFragment();
+        junitSupport.setGenerateXtendStub(false);
+        language.setJunitSupport(junitSupport);
+        assertEquals("false",
+                GeneratorProperties.of(generator, BASE).get("language.0.junitSupport.generateXtendStub.value"));
+
+        generator = generator(BASE);
+        ValidatorFragment2 validator = new ValidatorFragment2();
+        validator.addComposedCheck("org.eclipse.xtext.validation.NamesAreUniqueValidator");
+        ((StandardLanguage) generator.getLanguageConfigs().get(0)).setValidator(validator);
+        Map<String, String> composedCheck = GeneratorProperties.of(generator, BASE);
+        assertEquals("org.eclipse.xtext.validation.NamesAreUniqueValidator",
+                composedCheck.get("language.0.validator.composedChecks.0"));
+
+        generator = generator(BASE);
+        generator.getLanguageConfigs().get(0).addFragment(new SerializerFragment2());
+        Map<String, String> addedFragment = GeneratorProperties.of(generator, BASE);
+        assertEquals(SerializerFragment2.class.getName(), addedFragment.get("language.0.fragments.0.type"));
+        assertEquals("1", addedFragment.get("language.0.fragments.size"));
+    }
+
+    private static XtextGenerator generator(File base) {
+        XtextGenerator generator = new XtextGenerator();
+        GradleGeneratorModule configuration = new GradleGeneratorModule();
+        GradleXtextProjectConfig projectConfig = new GradleXtextProjectConfig();
+        configuration.setProject(projectConfig);
+        generator.setConfiguration(configuration);
+        for (SubProjectConfig subProjectConfig : projectConfig.getAllProjects()) {
+            subProjectConfig.setEnabled(false);
+        }
+        projectConfig.getRuntime().setEnabled(true);
+        projectConfig.getRuntime().setName("example.mydsl");
+        projectConfig.getRuntime().setRoot(new File(base, "example.mydsl").getPath());
+        projectConfig.getRuntime().setSrcGen(new File(base, "example.mydsl/src-gen").getPath());
+        StandardLanguage language = new StandardLanguage();
+        language.setGrammarUri(new File(base, "src/main/xtext/MyDsl.xtext").toURI().toString());
+        language.setFileExtensions("mydsl");
+        generator.addLanguage(language);
+        return generator;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.zxhr.gradle.xtext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.xtext.xtext.generator.XtextGeneratorLanguage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GrammarDependenciesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testDependencies() throws IOException {
+        File base = write("Base.xtext", "grammar org.example.Base with org.eclipse.xtext.common.Terminals\n"
+                + "generate base \"http://www.example.org/base\"\nModel: name=ID;\n");
+        File derived = write("Derived.xtext", "// grammar org.example.Commented\n"
+                + "grammar org.example.Derived with org.example.Base\n"
+                + "generate derived \"http://www.example.org/derived\"\nDerived: name=ID;\n");
+        File importing = write("Importing.xtext", "grammar org.example.^Importing\n"
+                + "import \"http://www.example.org/derived\" as derived\nImporting: ref=[derived::Derived];\n");
+        File other = write("Other.xtext", "grammar org.example.Other\n"
+                + "generate other \"http://www.example.org/other\"\nOther: name=ID;\n");
+        GrammarDependencies dependencies = GrammarDependencies.ofGrammars(Arrays.asList(importing, derived, base,
+                other));
+
+        assertEquals(Arrays.asList("org.example.Importing", "org.example.Derived", "org.example.Base",
+                "org.example.Other"), dependencies.getNames());
+        assertEquals(Arrays.asList(Arrays.asList(Collections.singletonList(2), Collections.singletonList(3)),
+                Collections.singletonList(Collections.singletonList(1)),
+                Collections.singletonList(Collections.singletonList(0))), dependencies.levels());
+        assertEquals(set(0, 1, 2), dependencies.withDependents(Collections.singleton(2)));
+        assertEquals(set(3), dependencies.withDependents(Collections.singleton(3)));
+    }
+
+    @Test
+    public void testUnreadableGrammar() throws IOException {
+        File first = write("First.xtext", "grammar org.example.First\nFirst: name=ID;\n");
+        File second = write("Second.xtext", "grammar org.example.Second\nSecond: name=ID;\n");
+        GrammarDependencies dependencies = GrammarDependencies.ofGrammars(Arrays.asList(first, null, second));
+
+        assertEquals(Arrays.asList("org.example.First", null, "org.example.Second"), dependencies.getNames());
+        // the unreadable grammar depends on and is depended on by all others
+        assertEquals(Collections.singletonList(Collections.singletonList(Arrays.asList(0, 1, 2))),
+                dependencies.levels());
+        assertEquals(set(0, 1, 2), dependencies.withDependents(Collections.singleton(0)));
+    }
+
+    @Test
+    public void testCycle() throws IOException {
+        File first = write("First.xtext", "grammar org.example.First\ngenerate first \"http://first\"\n"
+                + "import \"http://second\"\nFirst: name=ID;\n");
+        File second = write("Second.xtext", "grammar org.example.Second\ngenerate second \"http://second\"\n"
+                + "import \"http://first\"\nSecond: name=ID;\n");
+        GrammarDependencies dependencies = GrammarDependencies.ofGrammars(Arrays.asList(first, second));
+
+        assertEquals(Collections.singletonList(Collections.singletonList(Arrays.asList(0, 1))),
+                dependencies.levels());
+    }
+
+    @Test
+    public void testWorkItems() {
+        List<List<Integer>> level = Arrays.asList(Collections.singletonList(0), Collections.singletonList(1),
+                Collections.singletonList(2), Arrays.asList(3, 4));
+
+        assertEquals(Arrays.asList(set(0), set(1), set(2), set(3, 4)),
+                GrammarDependencies.workItems(level, set(0, 1, 2, 3, 4), Integer.MAX_VALUE));
+        assertEquals(Arrays.asList(set(0, 2), set(1, 3, 4)),
+                GrammarDependencies.workItems(level, set(0, 1, 2, 3, 4), 2));
+        List<Collection<Integer>> workItems = GrammarDependencies.workItems(level, set(1, 4), 4);
+        assertEquals(Arrays.asList(set(1), set(4)), workItems);
+        assertEquals(Collections.emptyList(), GrammarDependencies.workItems(level, set(5), 4));
+    }
+
+    @Test
+    public void testGrammarFile() {
+        File grammar = tempDir.resolve("MyDsl.xtext").toFile().getAbsoluteFile();
+        assertEquals(grammar, GrammarDependencies.grammarFile(language(grammar.toURI().toString())));
+        assertEquals(grammar, GrammarDependencies.grammarFile(language(grammar.getPath())));
+        assertNull(GrammarDependencies.grammarFile(language("src/main/xtext/MyDsl.xtext")));
+        assertNull(GrammarDependencies.grammarFile(language("file:MyDsl.xtext")));
+        assertNull(GrammarDependencies.grammarFile(language("classpath:/org/example/MyDsl.xtext")));
+        assertNull(GrammarDependencies.grammarFile(language("src/main/xtext/My Dsl.xtext")));
+        assertNull(GrammarDependencies.grammarFile(language("file://host/MyDsl.xtext")));
+    }
+
+    private static XtextGeneratorLanguage language(String grammarUri) {
+        XtextGeneratorLanguage language = new XtextGeneratorLanguage();
+        language.setGrammarUri(grammarUri);
+        return language;
+    }
+
+    private static Set<Integer> set(Integer... values) {
+        return new TreeSet<>(Arrays.asList(values));
+    }
+
+    private File write(String name, String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.zxhr.gradle.xtext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ManifestContentsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StringBuilder exports = new StringBuilder();
+        StringBuilder vendor = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            exports.append(i == 0 ? "" : ",").append("org.example.mydsl.p").append(i);
+            // two-byte characters which must not be split when the line is wrapped
+            vendor.append("\u00e9\u00e8");
+        }
+        ManifestContents contents = new ManifestContents();
+        contents.getAttributes().put("Bundle-SymbolicName", "org.example.mydsl; singleton:=true");
+        contents.getAttributes().put("Export-Package", exports.toString());
+        contents.getAttributes().put("Bundle-Vendor", vendor.toString());
+        contents.getSections().put("org/example/mydsl/", Collections.singletonMap("Sealed", "true"));
+        byte[] bytes = contents.toByteArray();
+
+        Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
+        assertEquals("1.0", manifest.getMainAttributes().getValue(Attributes.Name.MANIFEST_VERSION));
+        assertEquals(exports.toString(), manifest.getMainAttributes().getValue("Export-Package"));
+        assertEquals(vendor.toString(), manifest.getMainAttributes().getValue("Bundle-Vendor"));
+        assertEquals("true", manifest.getAttributes("org/example/mydsl/").getValue("Sealed"));
+
+        ManifestContents read = ManifestContents.read(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, "test");
+        assertEquals("1.0", read.getAttributes().remove(ManifestContents.MANIFEST_VERSION));
+        assertEquals(contents.getAttributes(), read.getAttributes());
+        assertEquals(contents.getSections(), read.getSections());
+    }
+
+    @Test
+    public void testInvalidManifest() {
+        assertThrows(GradleException.class, () -> read(" continued"));
+        assertThrows(GradleException.class, () -> read("Manifest-Version: 1.0\r\nno separator"));
+        assertThrows(GradleException.class, () -> read("Manifest-Version: 1.0\r\n\r\nSealed: true"));
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        File first = write("first.MF", "Bundle-SymbolicName: first\r\nRequire-Bundle: org.eclipse.xtext\r\n");
+        File second = write("second.MF", "Bundle-SymbolicName: second\r\n\r\nName: org/example/\r\nSealed: true\r\n");
+        ManifestMerge spec = new ManifestMerge(File.class::cast);
+        spec.from(first, second, new File(tempDir.toFile(), "missing.MF"));
+        ManifestContents merged = spec.merge(new ManifestContents());
+        assertEquals("second", merged.getAttributes().get("Bundle-SymbolicName"));
+        assertEquals("org.eclipse.xtext", merged.getAttributes().get("Require-Bundle"));
+        assertEquals(Collections.singletonMap("Sealed", "true"), merged.getSections().get("org/example/"));
+
+        spec = new ManifestMerge(File.class::cast);
+        spec.from(second);
+        spec.eachEntry(details -> {
+            if (details.getBaseValue() != null) {
+                details.setValue(details.getBaseValue() + "," + details.getMergeValue());
+            }
+        });
+        assertEquals("first,second", spec.merge(manifest("first")).getAttributes().get("Bundle-SymbolicName"));
+    }
+
+    private static ManifestContents manifest(String symbolicName) {
+        ManifestContents contents = new ManifestContents();
+        contents.getAttributes().put("Bundle-SymbolicName", symbolicName);
+        return contents;
+    }
+
+    private static ManifestContents read(String manifest) throws IOException {
+        return ManifestContents.read(new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, "test");
+    }
+
+    private File write(String name, String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.zxhr.gradle.xtext;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+
+public class PropertiesCodecTest {
+
+    @Test
+    public void testEncodeIsReadByProperties() throws IOException {
+        Map<String, String> properties = properties();
+        Properties loaded = new Properties();
+        loaded.load(new ByteArrayInputStream(PropertiesCodec.encode(properties)));
+        assertEquals(properties, toMap(loaded));
+    }
+
+    @Test
+    public void testDecodeReadsProperties() throws IOException {
+        Map<String, String> properties = properties();
+        Properties stored = new Properties();
+        stored.putAll(properties);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stored.store(out, "a comment");
+        assertEquals(new TreeMap<>(properties), PropertiesCodec.decode(out.toByteArray()));
+        assertEquals(new TreeMap<>(properties), PropertiesCodec.decode(PropertiesCodec.encode(properties)));
+    }
+
+    @Test
+    public void testDeterministic() {
+        Map<String, String> reversed = new LinkedHashMap<>();
+        Map<String, String> properties = properties();
+        new TreeMap<>(properties).descendingMap().forEach(reversed::put);
+        byte[] encoded = PropertiesCodec.encode(properties);
+        assertArrayEquals(encoded, PropertiesCodec.encode(reversed));
+        assertEquals("a.first=1\nb.second=2\n", new String(PropertiesCodec.encode(twoProperties()),
+                StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testSyntax() {
+        String text = "# comment\n! other comment\n  key1 = value \\\n    continued\r\nkey2:value2\r"
+                + "key3 value3\nkey\\ 4=\\u00e9\\t\nempty\n# trailing comment \\\nkey5=last\\";
+        Map<String, String> expected = new TreeMap<>();
+        expected.put("key1", "value continued");
+        expected.put("key2", "value2");
+        expected.put("key3", "value3");
+        expected.put("key 4", "\u00e9\t");
+        expected.put("empty", "");
+        expected.put("key5", "last");
+        assertEquals(expected, PropertiesCodec.decode(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void testMalformedEscape() {
+        assertThrows(GradleException.class,
+                () -> PropertiesCodec.decode("key=\\u00".getBytes(StandardCharsets.ISO_8859_1)));
+        assertThrows(GradleException.class,
+                () -> PropertiesCodec.decode("key=\\uxyz1".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private static Map<String, String> properties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("BUNDLE_ROOT_PATH", "build/pde");
+        properties.put("eclipse.preferences.version", "1");
+        properties.put("key with spaces", " leading space");
+        properties.put("separators=:", "#!=:\\");
+        properties.put("control", "line\nbreak\r\ttab\f");
+        properties.put("unicode", "\u00e9\u4e2d");
+        properties.put("empty", "");
+        return properties;
+    }
+
+    private static Map<String, String> twoProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("b.second", "2");
+        properties.put("a.first", "1");
+        return properties;
+    }
+
+    private static Map<String, String> toMap(Properties properties) {
+        Map<String, String> map = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            map.put(name, properties.getProperty(name));
+        }
+        return map;
+    }
+}
@@ -1,19 +1,27 @@
 package com.github.zxhr.gradle.xtext;
 
+import static com.github.zxhr.gradle.xtext.AbstractXtextPlugin.MERGE_MANIFEST_TASK_NAME;
 import static com.github.zxhr.gradle.xtext.XtextRootProjectPlugin.GENERATE_MWE2_TASK_NAME;
 import static java.nio.file.Files.isDirectory;
 import static java.nio.file.Files.isRegularFile;
 import static java.util.Arrays.asList;
 import static org.gradle.api.plugins.JavaPlugin.COMPILE_JAVA_TASK_NAME;
 import static org.gradle.api.plugins.JavaPlugin.COMPILE_TEST_JAVA_TASK_NAME;
+import static org.gradle.api.plugins.JavaPlugin.JAR_TASK_NAME;
 import static org.gradle.language.base.plugins.LifecycleBasePlugin.BUILD_TASK_NAME;
 import static org.gradle.language.base.plugins.LifecycleBasePlugin.CLEAN_TASK_NAME;
 import static org.gradle.plugins.ide.eclipse.EclipsePlugin.ECLIPSE_TASK_NAME;
+import static org.gradle.testkit.runner.TaskOutcome.FAILED;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
 import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.IOException;
 import java.net.URI;
@@ -25,17 +33,23 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import org.gradle.api.Project;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.util.GradleVersion;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -74,15 +88,382 @@ public void testXtextJavaProject(String gradleVersion) throws IOException {
         BuildResult result = runProject(gradleVersion, CLEAN_TASK_NAME, BUILD_TASK_NAME, ECLIPSE_TASK_NAME);
         checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
         checkEclipsePdeSetup(tempDir.resolve("example.mydsl.ui"));
+        assertTrue(isRegularFile(tempDir.resolve(Paths.get("build", "reports", "xtext", "generateMwe2.json"))));
 
         result = runProject(gradleVersion, BUILD_TASK_NAME);
         assertEquals(UP_TO_DATE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertEquals(UP_TO_DATE, result.task(getTask("example.mydsl", MERGE_MANIFEST_TASK_NAME)).getOutcome());
+        assertEquals(UP_TO_DATE, result.task(getTask("example.mydsl", JAR_TASK_NAME)).getOutcome());
         Path pluginXml = tempDir
                 .resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "resources", "plugin.xml"));
         String pluginXmlText = new String(Files.readAllBytes(pluginXml), StandardCharsets.UTF_8);
         assertTrue(pluginXmlText.contains("point=\"org.example.extension.point\""));
     }
 
+    @ParameterizedTest(name = "Xtext Generation Metrics - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testGenerationMetrics(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        Path report = tempDir.resolve(Paths.get("build", "reports", "xtext", "generateMwe2.json"));
+        String reportText = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+        for (String expected : asList("\"phasesMillis\"", "\"" + GenerationMetrics.CREATE_INJECTOR + "\"",
+                "\"" + GenerationMetrics.GENERATE_LANGUAGES + "\"", "\"name\": \"org.xtext.example.mydsl.MyDsl\"",
+                "\"XtextAntlrGeneratorFragment2\"", "\"parser\"", "\"written\"", "\"peakHeapBytes\"")) {
+            assertTrue(reportText.contains(expected), expected);
+        }
+
+        // the report describes the last execution, so an up-to-date task does not write it
+        Files.delete(report);
+        result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(UP_TO_DATE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertFalse(Files.exists(report));
+    }
+
+    @ParameterizedTest(name = "Xtext Eclipse Synchronization - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testEclipseSynchronization(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, ECLIPSE_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertNull(result.task(getTask("example.mydsl.ui", COMPILE_JAVA_TASK_NAME)));
+        assertNull(result.task(getTask("example.mydsl.ui", JAR_TASK_NAME)));
+        Path projectDir = tempDir.resolve("example.mydsl.ui");
+        checkEclipsePdeSetup(projectDir);
+        assertTrue(isRegularFile(projectDir.resolve(Paths.get("build", "pde", "META-INF", "MANIFEST.MF"))));
+        assertTrue(isRegularFile(projectDir.resolve(Paths.get("build", "pde", "plugin.xml"))));
+    }
+
+    @ParameterizedTest(name = "Xtext Eclipse Test Bundle - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testEclipseTestBundle(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        // move the Eclipse plugin tests into a project which only applies the test plugin
+        Path uiBuildScript = tempDir.resolve(Paths.get("example.mydsl.ui", "build.gradle"));
+        String uiBuildScriptText = new String(Files.readAllBytes(uiBuildScript), StandardCharsets.UTF_8);
+        uiBuildScriptText = uiBuildScriptText.replace("    id 'com.github.zxhr.xtext-generator-eclipse-plugin-test'\n",
+                "");
+        Files.write(uiBuildScript, uiBuildScriptText.getBytes(StandardCharsets.UTF_8));
+        Path projectDir = Files.createDirectories(tempDir.resolve("example.mydsl.ui.tests"));
+        Files.write(projectDir.resolve("build.gradle"),
+                "plugins {\n    id 'com.github.zxhr.xtext-generator-eclipse-plugin-test'\n    id 'eclipse'\n}\n"
+                        .getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("settings.gradle"), "\ninclude 'example.mydsl.ui.tests'\n"
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        BuildResult result = runProject(gradleVersion, ECLIPSE_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask("example.mydsl.ui.tests", "mergeTestManifest")).getOutcome());
+        assertTrue(isRegularFile(projectDir.resolve("build/src-gen/test/resources/META-INF/MANIFEST.MF")));
+        checkEclipsePdeSetup(projectDir);
+        Path manifest = projectDir.resolve(Paths.get("build", "pde", "META-INF", "MANIFEST.MF"));
+        assertTrue(isRegularFile(manifest));
+        String manifestText = new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8);
+        assertTrue(manifestText.contains("Bundle-SymbolicName"));
+    }
+
+    @ParameterizedTest(name = "Xtext Single Sub-Project - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testSingleSubProject(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, getTask("example.mydsl.ide", COMPILE_JAVA_TASK_NAME));
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertEquals(SUCCESS, result.task(getTask("example.mydsl.ide", COMPILE_JAVA_TASK_NAME)).getOutcome());
+        // the sub-project only consumes the generated sources of itself and of the projects it depends on
+        assertNull(result.task(getTask("example.mydsl.ui", COMPILE_JAVA_TASK_NAME)));
+        assertNull(result.task(getTask("example.mydsl.web", COMPILE_JAVA_TASK_NAME)));
+        assertTrue(isDirectory(tempDir.resolve(Paths.get("example.mydsl.web", "build", "src-gen", "main", "java"))));
+    }
+
+    @ParameterizedTest(name = "Xtext Build Cache - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testBuildCache(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        Files.write(tempDir.resolve("settings.gradle"),
+                "\nbuildCache { local { directory = new File(rootDir, 'build-cache') } }\n"
+                        .getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        BuildResult result = runProject(gradleVersion, "--build-cache", CLEAN_TASK_NAME, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        result = runProject(gradleVersion, "--build-cache", CLEAN_TASK_NAME, BUILD_TASK_NAME);
+        assertEquals(FROM_CACHE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertEquals(FROM_CACHE, result.task(getTask("example.mydsl", MERGE_MANIFEST_TASK_NAME)).getOutcome());
+        checkRuntimeProjectGenerated(tempDir.resolve("example.mydsl"));
+    }
+
+    @ParameterizedTest(name = "Xtext Configuration Cache - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testConfigurationCache(String gradleVersion) throws IOException {
+        GradleVersion version = "current".equals(gradleVersion) ? GradleVersion.current()
+                : GradleVersion.version(gradleVersion);
+        assumeTrue(version.compareTo(GradleVersion.version("6.6")) >= 0);
+        setupProject("mydsl-xtext-version");
+        BuildResult result = runProject(gradleVersion, "--configuration-cache", CLEAN_TASK_NAME, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        result = runProject(gradleVersion, "--configuration-cache", CLEAN_TASK_NAME, BUILD_TASK_NAME);
+        assertTrue(result.getOutput().contains("Reusing configuration cache."));
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+    }
+
+    @ParameterizedTest(name = "Xtext Grammar Change - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testGrammarChange(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        Path grammar = tempDir.resolve(Paths.get("src", "main", "xtext", "MyDsl.xtext"));
+        String grammarText = new String(Files.readAllBytes(grammar), StandardCharsets.UTF_8);
+        Files.write(grammar, grammarText.replace("greetings+=Greeting*;", "greetings+=Greeting* farewells+=Farewell*;")
+                .concat("\nFarewell:\n\t'Bye' name=ID '!';\n").getBytes(StandardCharsets.UTF_8));
+        result = runProject(gradleVersion, BUILD_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertEquals(SUCCESS, result.task(getTask("example.mydsl", COMPILE_JAVA_TASK_NAME)).getOutcome());
+        // EMF does not write the unchanged model code again
+        Path model = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "java", "org", "xtext",
+                "example", "mydsl", "myDsl"));
+        for (String modelFile : asList("Model.java", "Greeting.java", "Farewell.java", "impl/GreetingImpl.java",
+                "impl/FarewellImpl.java", "util/MyDslSwitch.java")) {
+            assertTrue(isRegularFile(model.resolve(modelFile)), modelFile);
+        }
+
+        // removing the rule again generates only the language, without the cleaner
+        Path srcGen = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen"));
+        Map<Path, FileTime> lastModified = setLastModified(srcGen, FileTime.fromMillis(1_000_000_000_000L),
+                file -> !file.getFileName().toString().equals("plugin.xml"));
+        Files.write(grammar, grammarText.getBytes(StandardCharsets.UTF_8));
+        result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertFalse(Files.exists(model.resolve("Farewell.java")));
+        assertFalse(Files.exists(model.resolve(Paths.get("impl", "FarewellImpl.java"))));
+        for (Path unchanged : asList(model.resolve("Greeting.java"),
+                model.resolve(Paths.get("impl", "GreetingImpl.java")),
+                model.resolveSibling(Paths.get("validation", "AbstractMyDslValidator.java")))) {
+            assertEquals(lastModified.get(unchanged), Files.getLastModifiedTime(unchanged), unchanged.toString());
+        }
+    }
+
+    @ParameterizedTest(name = "Xtext Changed Grammar Of Several Languages - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testChangedGrammarOfSeveralLanguages(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        addOtherLanguage();
+        BuildResult result = runProject(gradleVersion, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        Path srcGen = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "java", "org", "xtext",
+                "example", "mydsl"));
+        Map<Path, FileTime> lastModified = setLastModified(srcGen, FileTime.fromMillis(1_000_000_000_000L),
+                file -> file.toString().contains("MyDsl"));
+        Path grammar = tempDir.resolve(Paths.get("src", "main", "xtext", "Other.xtext"));
+        Files.write(grammar, "\nOtherThing:\n\t'other' name=ID;\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        result = runProject(gradleVersion, "--info", GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertTrue(result.getOutput().contains("Generating 1 of 2 languages"));
+        assertTrue(isRegularFile(srcGen.resolve(Paths.get("other", "OtherThing.java"))));
+        // the language whose grammar did not change is not generated again
+        assertFalse(lastModified.isEmpty());
+        for (Map.Entry<Path, FileTime> file : lastModified.entrySet()) {
+            assertEquals(file.getValue(), Files.getLastModifiedTime(file.getKey()), file.getKey().toString());
+        }
+    }
+
+    @ParameterizedTest(name = "Xtext Unchanged Generated Files - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testUnchangedGeneratedFiles(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        Path srcGen = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen"));
+        Path staleSource = srcGen.resolve(Paths.get("main", "java", "org", "xtext", "example", "mydsl", "Stale.java"));
+        Path staleResource = srcGen.resolve(Paths.get("main", "resources", "stale.txt"));
+        Files.write(staleSource, "package org.xtext.example.mydsl;\nclass Stale {}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(staleResource, "stale\n".getBytes(StandardCharsets.UTF_8));
+        // the build script changes plugin.xml after the generation
+        Map<Path, FileTime> lastModified = setLastModified(srcGen, FileTime.fromMillis(1_000_000_000_000L),
+                file -> !file.getFileName().toString().equals("plugin.xml") && !file.equals(staleSource)
+                        && !file.equals(staleResource));
+        assertTrue(lastModified.keySet().stream().anyMatch(file -> file.toString().endsWith("Parser.java")));
+        assertTrue(lastModified.keySet().stream().anyMatch(file -> file.toString().endsWith(".g")));
+        assertTrue(lastModified.keySet().stream().anyMatch(file -> file.toString().endsWith("GreetingImpl.java")));
+
+        result = runProject(gradleVersion, "--rerun-tasks", GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertFalse(Files.exists(staleSource));
+        assertFalse(Files.exists(staleResource));
+        lastModified.forEach((file, time) -> {
+            assertTrue(isRegularFile(file), file.toString());
+            try {
+                assertEquals(time, Files.getLastModifiedTime(file), file.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @ParameterizedTest(name = "Xtext Reused Loaded Grammars - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testReuseLoadedGrammars(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        Files.write(tempDir.resolve("build.gradle"),
+                "\ntasks.named('generateMwe2') { reuseLoadedGrammars = true }\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        BuildResult result = runProject(gradleVersion, "--info", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertFalse(result.getOutput().contains("loaded resources for"));
+
+        // the second generation runs in the same daemon and reuses the grammars loaded by the first
+        result = runProject(gradleVersion, "--info", "--rerun-tasks", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertTrue(result.getOutput().contains("loaded resources for"));
+    }
+
+    @ParameterizedTest(name = "Xtext Stored Parsed Grammars - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testStoreParsedGrammars(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        appendToBuildScript("tasks.named('generateMwe2') { storeParsedGrammars = true }\n");
+        BuildResult result = runProject(gradleVersion, "--info", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertTrue(result.getOutput().contains("Stored "));
+        Path grammars = tempDir.resolve(Paths.get("build", "xtext", GENERATE_MWE2_TASK_NAME, "grammars"));
+        assertTrue(isDirectory(grammars));
+
+        result = runProject(gradleVersion, "--info", "--rerun-tasks", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertTrue(result.getOutput().contains("stored grammars for"));
+
+        // the grammars cannot be stored, which does not fail the generation
+        try (Stream<Path> files = Files.walk(grammars)) {
+            for (Path file : (Iterable<Path>) files.sorted(Collections.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.createFile(grammars);
+        result = runProject(gradleVersion, "--rerun-tasks", GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertTrue(result.getOutput().contains("Could not store the grammars"));
+    }
+
+    @ParameterizedTest(name = "Xtext Cached ANTLR Output - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testCacheAntlrOutput(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        appendToBuildScript("tasks.named('generateMwe2') { cacheAntlrOutput = true }\n");
+        BuildResult result = runProject(gradleVersion, "--info", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertTrue(result.getOutput().contains("Restored the ANTLR output of 0 grammars"));
+
+        // the unchanged ANTLR grammars are restored instead of running the tool
+        Path parser = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "java", "org", "xtext",
+                "example", "mydsl", "parser", "antlr", "internal", "InternalMyDslParser.java"));
+        Files.delete(parser);
+        result = runProject(gradleVersion, "--info", "--rerun-tasks", BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        assertTrue(result.getOutput().contains("and ran ANTLR for 0 grammars"));
+        assertTrue(isRegularFile(parser));
+    }
+
+    @ParameterizedTest(name = "Xtext Parser Options - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testParserOptions(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        Path buildScript = tempDir.resolve("build.gradle");
+        String buildScriptTemplate = new String(Files.readAllBytes(buildScript), StandardCharsets.UTF_8)
+                + "\nxtextRoot { parserOptions('MyDsl') { classSplitting = %s } }\n";
+        Files.write(buildScript, String.format(buildScriptTemplate, true).getBytes(StandardCharsets.UTF_8));
+        BuildResult result = runProject(gradleVersion, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+
+        // the parser options are inputs of the generation
+        Files.write(buildScript, String.format(buildScriptTemplate, false).getBytes(StandardCharsets.UTF_8));
+        result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(UP_TO_DATE, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+    }
+
+    @ParameterizedTest(name = "Xtext Isolated Generator - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testIsolatedGenerator(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        appendToBuildScript("repositories { jcenter() }\ntasks.named('generateMwe2') {\n    isolationMode = "
+                + "com.github.zxhr.gradle.xtext.IsolationMode.valueOf(project.property('isolationMode'))\n}\n");
+        for (String isolationMode : asList("CLASSLOADER", "PROCESS")) {
+            BuildResult result = runProject(gradleVersion, "-PisolationMode=" + isolationMode, CLEAN_TASK_NAME,
+                    BUILD_TASK_NAME);
+            checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui",
+                    "example.mydsl.web");
+        }
+    }
+
+    @ParameterizedTest(name = "Xtext Parallel Languages - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testParallelLanguages(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        addOtherLanguage();
+        appendToBuildScript("repositories { jcenter() }\n"
+                + "tasks.named('generateMwe2') {\n    parallel = true\n    maxParallelLanguages = 2\n}\n");
+        BuildResult result = runProject(gradleVersion, CLEAN_TASK_NAME, BUILD_TASK_NAME);
+        checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
+        Path srcGen = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "java", "org", "xtext",
+                "example", "mydsl"));
+        assertTrue(isRegularFile(srcGen.resolve("AbstractMyDslRuntimeModule.java")));
+        assertTrue(isRegularFile(srcGen.resolve("AbstractOtherRuntimeModule.java")));
+    }
+
+    @ParameterizedTest(name = "Xtext Removed Language - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testRemovedLanguage(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        Path buildScript = tempDir.resolve("build.gradle");
+        byte[] buildScriptContent = Files.readAllBytes(buildScript);
+        addOtherLanguage();
+        BuildResult result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        Path srcGen = tempDir.resolve(Paths.get("example.mydsl", "build", "src-gen", "main", "java", "org", "xtext",
+                "example", "mydsl"));
+        assertTrue(isRegularFile(srcGen.resolve("AbstractOtherRuntimeModule.java")));
+        Map<Path, FileTime> lastModified = setLastModified(srcGen, FileTime.fromMillis(1_000_000_000_000L),
+                file -> file.toString().contains("MyDsl"));
+
+        // the files generated only for the removed language are deleted
+        Files.write(buildScript, buildScriptContent);
+        Files.delete(tempDir.resolve(Paths.get("src", "main", "xtext", "Other.xtext")));
+        result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertFalse(Files.exists(srcGen.resolve("AbstractOtherRuntimeModule.java")));
+        assertFalse(Files.exists(srcGen.resolve(Paths.get("other", "Thing.java"))));
+        assertFalse(lastModified.isEmpty());
+        for (Map.Entry<Path, FileTime> file : lastModified.entrySet()) {
+            assertEquals(file.getValue(), Files.getLastModifiedTime(file.getKey()), file.getKey().toString());
+        }
+    }
+
+    @ParameterizedTest(name = "Xtext Failed Language - Gradle {0}")
+    @MethodSource("getGradleVersions")
+    public void testFailedLanguage(String gradleVersion) throws IOException {
+        setupProject("mydsl");
+        BuildResult result = runProject(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(SUCCESS, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        Path outputIndex = tempDir.resolve(Paths.get("build", "xtext", "generateMwe2", "outputs.index"));
+        byte[] outputIndexContent = Files.readAllBytes(outputIndex);
+
+        // a failed language leaves the index of the previous generation untouched
+        appendToBuildScript("class FailingFragment\n"
+                + "        extends org.eclipse.xtext.xtext.generator.AbstractXtextGeneratorFragment {\n"
+                + "    void generate() {\n        throw new IllegalStateException('failing fragment')\n    }\n}\n");
+        addOtherLanguage("        addFragment(new FailingFragment())\n");
+        result = runProjectAndFail(gradleVersion, GENERATE_MWE2_TASK_NAME);
+        assertEquals(FAILED, result.task(getTask(GENERATE_MWE2_TASK_NAME)).getOutcome());
+        assertTrue(result.getOutput().contains("failing fragment"));
+        assertArrayEquals(outputIndexContent, Files.readAllBytes(outputIndex));
+    }
+
     @ParameterizedTest(name = "Xtext Xtend Project - Gradle {0}")
     @MethodSource("getGradleVersions")
     public void testXtextXtendProject(String gradleVersion) throws IOException {
@@ -99,7 +480,44 @@ public void testDifferentVersionXtextProject(String gradleVersion) throws IOExce
         checkProjectsGenerated(result, "example.mydsl", "example.mydsl.ide", "example.mydsl.ui", "example.mydsl.web");
     }
 
+    /**
+     * Adds a second language to the project, whose grammar does not depend on
+     * the grammar of {@code MyDsl}.
+     */
+    private void addOtherLanguage() throws IOException {
+        addOtherLanguage("");
+    }
+
+    /**
+     * Adds a second language to the project, whose grammar does not depend on
+     * the grammar of {@code MyDsl}, with additional configuration.
+     */
+    private void addOtherLanguage(String configuration) throws IOException {
+        Files.write(tempDir.resolve(Paths.get("src", "main", "xtext", "Other.xtext")),
+                ("grammar org.xtext.example.mydsl.Other with org.eclipse.xtext.common.Terminals\n\n"
+                        + "generate other \"http://www.xtext.org/example/mydsl/Other\"\n\n"
+                        + "Things:\n\tthings+=Thing*;\n\nThing:\n\t'thing' name=ID;\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        appendToBuildScript("xtextRoot {\n    language('Other', StandardLanguage) {\n"
+                + "        grammarUri = uri('src/main/xtext/Other.xtext').toString()\n"
+                + "        fileExtensions = 'other'\n        junitSupport.generateXtendStub = false\n" + configuration
+                + "    }\n}\n");
+    }
+
+    private void appendToBuildScript(String text) throws IOException {
+        Files.write(tempDir.resolve("build.gradle"), ("\n" + text).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+    }
+
     private BuildResult runProject(String gradleVersion, String... tasks) {
+        return createRunner(gradleVersion, tasks).build();
+    }
+
+    private BuildResult runProjectAndFail(String gradleVersion, String... tasks) {
+        return createRunner(gradleVersion, tasks).buildAndFail();
+    }
+
+    private GradleRunner createRunner(String gradleVersion, String... tasks) {
         List<String> arguments = new ArrayList<>();
         arguments.addAll(asList("-PxtextExampleVersion=" + System.getProperty("xtextVersion"),
                 "-PpluginVersion=" + System.getProperty("pluginVersion"),
@@ -109,7 +527,7 @@ private BuildResult runProject(String gradleVersion, String... tasks) {
         if (!"current".equals(gradleVersion)) {
             runner = runner.withGradleVersion(gradleVersion);
         }
-        return runner.withProjectDir(tempDir.toFile()).forwardOutput().withArguments(arguments).build();
+        return runner.withProjectDir(tempDir.toFile()).forwardOutput().withArguments(arguments);
     }
 
     private void checkProjectsGenerated(BuildResult result, String runtimeProject, String genericIdeProject,
@@ -186,6 +604,22 @@ private void checkEclipsePdeSetup(Path projectDir) throws IOException {
         assertTrue(isRegularFile(buildProperties));
     }
 
+    /**
+     * Sets the modification time of the matching files in the directory and
+     * returns it keyed by the files.
+     */
+    private static Map<Path, FileTime> setLastModified(Path directory, FileTime time, Predicate<Path> filter)
+            throws IOException {
+        Map<Path, FileTime> lastModified = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).filter(filter)::iterator) {
+                Files.setLastModifiedTime(file, time);
+                lastModified.put(file, time);
+            }
+        }
+        return lastModified;
+    }
+
     private static String getTask(String... pathToTask) {
         String taskPath = "";
         for (String part : pathToTask) {